@@ -2,8 +2,10 @@ package com.shoebank.nepalshop;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class NepalShopApplication {
 
     public static void main(String[] args) {
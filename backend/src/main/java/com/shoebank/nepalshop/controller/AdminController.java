@@ -5,10 +5,14 @@ import com.shoebank.nepalshop.model.Order;
 import com.shoebank.nepalshop.service.*;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 
 @RestController
@@ -21,6 +25,10 @@ public class AdminController {
     private final ProductService productService;
     private final OrderService orderService;
     private final DashboardService dashboardService;
+    private final ProductCacheService productCacheService;
+    private final ProductBulkService productBulkService;
+    private final CartPurgeService cartPurgeService;
+    private final OutboxService outboxService;
 
     // Dashboard
     @GetMapping("/dashboard")
@@ -29,6 +37,22 @@ public class AdminController {
         return ResponseEntity.ok(ApiResponse.success(stats));
     }
 
+    // Cache monitoring
+    @GetMapping("/cache/stats")
+    public ResponseEntity<ApiResponse<List<CacheStatsDTO>>> getCacheStats() {
+        return ResponseEntity.ok(ApiResponse.success(productCacheService.getStats()));
+    }
+
+    @GetMapping("/carts/purge-stats")
+    public ResponseEntity<ApiResponse<CartPurgeStatsDTO>> getCartPurgeStats() {
+        return ResponseEntity.ok(ApiResponse.success(cartPurgeService.getStats()));
+    }
+
+    @GetMapping("/outbox/stats")
+    public ResponseEntity<ApiResponse<OutboxStatsDTO>> getOutboxStats() {
+        return ResponseEntity.ok(ApiResponse.success(outboxService.getStats()));
+    }
+
     // Category Management
     @GetMapping("/categories")
     public ResponseEntity<ApiResponse<List<CategoryDTO>>> getAllCategories() {
@@ -80,6 +104,18 @@ public class AdminController {
         return ResponseEntity.ok(ApiResponse.success(products));
     }
 
+    @GetMapping(value = "/products", params = "after")
+    public ResponseEntity<ApiResponse<CursorPage<ProductDTO>>> getAllProductsAfter(
+            @RequestParam(required = false) Long categoryId,
+            @RequestParam(required = false) String search,
+            @RequestParam String after,
+            @RequestParam(defaultValue = "20") int size) {
+
+        CursorPage<ProductDTO> products = productService.getProductsAfter(categoryId, search, after, size,
+                "createdAt", "desc", null, null, null, null, null, null);
+        return ResponseEntity.ok(ApiResponse.success(products));
+    }
+
     @PostMapping("/products")
     public ResponseEntity<ApiResponse<ProductDTO>> createProduct(@Valid @RequestBody ProductCreateDTO dto) {
         try {
@@ -112,6 +148,44 @@ public class AdminController {
         }
     }
 
+    // Partial price/stock/flag changes for many products at once
+    @PatchMapping("/products")
+    public ResponseEntity<ApiResponse<BulkUpdateResultDTO>> patchProducts(@RequestBody List<ProductPatchDTO> patches) {
+        try {
+            BulkUpdateResultDTO result = productBulkService.patchProducts(patches);
+            return ResponseEntity.ok(ApiResponse.success(
+                    "Updated " + result.getUpdated() + " of " + result.getRequested() + " products", result));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
+    // Bulk import: raw CSV (header row, images/tags joined with '|') or NDJSON request body
+    @PostMapping("/products/import")
+    public ResponseEntity<ApiResponse<ImportResultDTO>> importProducts(
+            @RequestParam(required = false) String format,
+            @RequestHeader(value = HttpHeaders.CONTENT_TYPE, required = false) String contentType,
+            InputStream body) {
+        try {
+            ImportResultDTO result = productBulkService.importProducts(
+                    body, ProductBulkService.resolveFormat(format, contentType));
+            return ResponseEntity.ok(ApiResponse.success(
+                    "Imported " + result.getImported() + " of " + result.getRows() + " rows", result));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
+    @GetMapping("/products/export")
+    public void exportProducts(@RequestParam(defaultValue = "csv") String format,
+                               HttpServletResponse response) throws IOException {
+        String resolved = ProductBulkService.resolveFormat(format, null);
+        response.setContentType(ProductBulkService.NDJSON.equals(resolved) ? "application/x-ndjson" : "text/csv");
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"products." + resolved + "\"");
+        productBulkService.exportProducts(response.getOutputStream(), resolved);
+    }
+
     // Order Management
     @GetMapping("/orders")
     public ResponseEntity<ApiResponse<Page<OrderDTO>>> getAllOrders(
@@ -122,6 +196,20 @@ public class AdminController {
         return ResponseEntity.ok(ApiResponse.success(orders));
     }
 
+    @GetMapping(value = "/orders", params = "after")
+    public ResponseEntity<ApiResponse<CursorPage<OrderDTO>>> getAllOrdersAfter(
+            @RequestParam String after,
+            @RequestParam(required = false) String status,
+            @RequestParam(defaultValue = "20") int size) {
+        try {
+            Order.OrderStatus orderStatus = status != null ? Order.OrderStatus.valueOf(status.toUpperCase()) : null;
+            CursorPage<OrderDTO> orders = orderService.getOrdersAfter(orderStatus, after, size);
+            return ResponseEntity.ok(ApiResponse.success(orders));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error("Invalid status"));
+        }
+    }
+
     @GetMapping("/orders/{id}")
     public ResponseEntity<ApiResponse<OrderDTO>> getOrderById(@PathVariable Long id) {
         try {
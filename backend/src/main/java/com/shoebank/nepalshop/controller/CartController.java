@@ -2,6 +2,7 @@ package com.shoebank.nepalshop.controller;
 
 import com.shoebank.nepalshop.dto.*;
 import com.shoebank.nepalshop.service.CartService;
+import com.shoebank.nepalshop.service.CartSessionService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -15,6 +16,13 @@ import jakarta.validation.Valid;
 public class CartController {
 
     private final CartService cartService;
+    private final CartSessionService cartSessionService;
+
+    // Carts are keyed by server-issued session ids; the client stores this and sends it as X-Session-Id
+    @PostMapping("/session")
+    public ResponseEntity<ApiResponse<String>> createSession() {
+        return ResponseEntity.ok(ApiResponse.success(cartSessionService.issue()));
+    }
 
     @GetMapping
     public ResponseEntity<ApiResponse<CartDTO>> getCart(@RequestHeader("X-Session-Id") String sessionId) {
@@ -59,6 +67,19 @@ public class CartController {
         }
     }
 
+    // Several edits in one request, e.g. a debounced quantity stepper; all or nothing
+    @PostMapping("/batch")
+    public ResponseEntity<ApiResponse<CartDTO>> applyBatch(
+            @RequestHeader("X-Session-Id") String sessionId,
+            @Valid @RequestBody CartBatchRequest request) {
+        try {
+            CartDTO cart = cartService.applyBatch(sessionId, request.getOperations());
+            return ResponseEntity.ok(ApiResponse.success("Cart updated", cart));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
     @DeleteMapping("/clear")
     public ResponseEntity<ApiResponse<Void>> clearCart(@RequestHeader("X-Session-Id") String sessionId) {
         try {
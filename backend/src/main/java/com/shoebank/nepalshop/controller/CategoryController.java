@@ -2,12 +2,14 @@ package com.shoebank.nepalshop.controller;
 
 import com.shoebank.nepalshop.dto.ApiResponse;
 import com.shoebank.nepalshop.dto.CategoryDTO;
+import com.shoebank.nepalshop.service.CatalogVersionService;
 import com.shoebank.nepalshop.service.CategoryService;
+import com.shoebank.nepalshop.service.NavigationSnapshotService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-
-import java.util.List;
+import org.springframework.web.context.request.WebRequest;
 
 @RestController
 @RequestMapping("/api/categories")
@@ -16,20 +18,30 @@ import java.util.List;
 public class CategoryController {
 
     private final CategoryService categoryService;
+    private final CatalogVersionService catalogVersionService;
+    private final NavigationSnapshotService navigationSnapshotService;
 
     @GetMapping
-    public ResponseEntity<ApiResponse<List<CategoryDTO>>> getAllCategories() {
-        List<CategoryDTO> categories = categoryService.getAllActiveCategories();
-        return ResponseEntity.ok(ApiResponse.success(categories));
+    public ResponseEntity<byte[]> getAllCategories(WebRequest request) {
+        // 304 without touching the database when the list has not changed
+        NavigationSnapshotService.Payload categories = navigationSnapshotService.categories();
+        if (categories.checkNotModified(request)) {
+            return null;
+        }
+        return categories.toResponse(request);
     }
 
     @GetMapping("/{slug}")
-    public ResponseEntity<ApiResponse<CategoryDTO>> getCategoryBySlug(@PathVariable String slug) {
+    public ResponseEntity<ApiResponse<CategoryDTO>> getCategoryBySlug(@PathVariable String slug, WebRequest request) {
+        if (catalogVersionService.checkNotModified(request)) {
+            return null;
+        }
         try {
             CategoryDTO category = categoryService.getCategoryBySlug(slug);
-            return ResponseEntity.ok(ApiResponse.success(category));
+            return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(ApiResponse.success(category));
         } catch (RuntimeException e) {
-            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+            return ResponseEntity.badRequest().cacheControl(CacheControl.noStore())
+                    .body(ApiResponse.error(e.getMessage()));
         }
     }
 }
@@ -1,6 +1,8 @@
 package com.shoebank.nepalshop.controller;
 
 import com.shoebank.nepalshop.dto.*;
+import com.shoebank.nepalshop.exception.IdempotencyException;
+import com.shoebank.nepalshop.service.IdempotencyService;
 import com.shoebank.nepalshop.service.OrderService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
@@ -15,12 +17,19 @@ import jakarta.validation.Valid;
 public class OrderController {
 
     private final OrderService orderService;
+    private final IdempotencyService idempotencyService;
 
     @PostMapping
-    public ResponseEntity<ApiResponse<OrderDTO>> createOrder(@Valid @RequestBody CreateOrderRequest request) {
+    public ResponseEntity<ApiResponse<OrderDTO>> createOrder(
+            @Valid @RequestBody CreateOrderRequest request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
         try {
-            OrderDTO order = orderService.createOrder(request);
+            // A retry with the same key gets the first order back instead of a second one
+            OrderDTO order = idempotencyService.execute(idempotencyKey, request,
+                    claim -> orderService.createOrder(request, claim));
             return ResponseEntity.ok(ApiResponse.success("Order created successfully", order));
+        } catch (IdempotencyException e) {
+            return ResponseEntity.status(e.getStatus()).body(ApiResponse.error(e.getMessage()));
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
         }
@@ -1,14 +1,24 @@
 package com.shoebank.nepalshop.controller;
 
 import com.shoebank.nepalshop.dto.ApiResponse;
+import com.shoebank.nepalshop.dto.CursorPage;
+import com.shoebank.nepalshop.dto.FacetCountsDTO;
 import com.shoebank.nepalshop.dto.ProductDTO;
+import com.shoebank.nepalshop.dto.SuggestionDTO;
+import com.shoebank.nepalshop.service.CatalogVersionService;
+import com.shoebank.nepalshop.service.NavigationSnapshotService;
+import com.shoebank.nepalshop.service.ProductRecommendationService;
 import com.shoebank.nepalshop.service.ProductService;
+import com.shoebank.nepalshop.service.ProductSuggestService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.util.List;
 
 @RestController
@@ -18,41 +28,128 @@ import java.util.List;
 public class ProductController {
 
     private final ProductService productService;
+    private final CatalogVersionService catalogVersionService;
+    private final ProductSuggestService productSuggestService;
+    private final ProductRecommendationService productRecommendationService;
+    private final NavigationSnapshotService navigationSnapshotService;
 
+    // All catalog reads are validated against the catalog version: a matching
+    // If-None-Match / If-Modified-Since gets a 304 before any query runs.
+    // no-cache lets browsers store the body but revalidate on every use.
     @GetMapping
     public ResponseEntity<ApiResponse<Page<ProductDTO>>> getProducts(
             @RequestParam(required = false) Long categoryId,
             @RequestParam(required = false) String search,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "12") int size,
-            @RequestParam(defaultValue = "createdAt") String sortBy,
+            @RequestParam(required = false) String sortBy,
             @RequestParam(defaultValue = "desc") String sortDir,
             @RequestParam(required = false) BigDecimal minPrice,
             @RequestParam(required = false) BigDecimal maxPrice,
             @RequestParam(required = false) String brand,
             @RequestParam(required = false) String gender,
             @RequestParam(required = false) String occasion,
-            @RequestParam(required = false) String tag) {
+            @RequestParam(required = false) String tag,
+            WebRequest request) {
+        if (catalogVersionService.checkNotModified(request)) {
+            return null;
+        }
 
         Page<ProductDTO> products = productService.getProducts(
                 categoryId, search, page, size, sortBy, sortDir,
                 minPrice, maxPrice, brand, gender, occasion, tag);
-        return ResponseEntity.ok(ApiResponse.success(products));
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(ApiResponse.success(products));
+    }
+
+    // Cursor mode: selected when the request carries an "after" parameter (empty for the first page)
+    @GetMapping(params = "after")
+    public ResponseEntity<ApiResponse<CursorPage<ProductDTO>>> getProductsAfter(
+            @RequestParam(required = false) Long categoryId,
+            @RequestParam(required = false) String search,
+            @RequestParam String after,
+            @RequestParam(defaultValue = "12") int size,
+            @RequestParam(required = false) String sortBy,
+            @RequestParam(defaultValue = "desc") String sortDir,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(required = false) String brand,
+            @RequestParam(required = false) String gender,
+            @RequestParam(required = false) String occasion,
+            @RequestParam(required = false) String tag,
+            WebRequest request) {
+        if (catalogVersionService.checkNotModified(request)) {
+            return null;
+        }
+
+        CursorPage<ProductDTO> products = productService.getProductsAfter(
+                categoryId, search, after, size, sortBy, sortDir,
+                minPrice, maxPrice, brand, gender, occasion, tag);
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(ApiResponse.success(products));
+    }
+
+    // Per-value counts for the filter sidebar, under the same filters as the listing
+    @GetMapping("/facets")
+    public ResponseEntity<ApiResponse<FacetCountsDTO>> getFacets(
+            @RequestParam(required = false) Long categoryId,
+            @RequestParam(required = false) String search,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(required = false) String brand,
+            @RequestParam(required = false) String gender,
+            @RequestParam(required = false) String occasion,
+            @RequestParam(required = false) String tag,
+            WebRequest request) {
+        if (catalogVersionService.checkNotModified(request)) {
+            return null;
+        }
+
+        FacetCountsDTO facets = productService.getFacets(
+                categoryId, search, minPrice, maxPrice, brand, gender, occasion, tag);
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(ApiResponse.success(facets));
+    }
+
+    // Search-box completions; refreshed every few seconds, so no ETag. No q means no suggestions
+    @GetMapping("/suggest")
+    public ResponseEntity<ApiResponse<List<SuggestionDTO>>> suggest(
+            @RequestParam(defaultValue = "") String q,
+            @RequestParam(defaultValue = "8") int limit) {
+        List<SuggestionDTO> suggestions = productSuggestService.suggest(q, limit);
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(Duration.ofSeconds(30)))
+                .body(ApiResponse.success(suggestions));
     }
 
     @GetMapping("/featured")
-    public ResponseEntity<ApiResponse<List<ProductDTO>>> getFeaturedProducts() {
-        List<ProductDTO> products = productService.getFeaturedProducts();
-        return ResponseEntity.ok(ApiResponse.success(products));
+    public ResponseEntity<byte[]> getFeaturedProducts(WebRequest request) {
+        NavigationSnapshotService.Payload featured = navigationSnapshotService.featuredProducts();
+        if (featured.checkNotModified(request)) {
+            return null;
+        }
+        return featured.toResponse(request);
+    }
+
+    // "Frequently bought together"; follows orders rather than the catalog version, hence no ETag
+    @GetMapping("/{id}/related")
+    public ResponseEntity<ApiResponse<List<ProductDTO>>> getRelatedProducts(
+            @PathVariable Long id,
+            @RequestParam(defaultValue = "6") int limit) {
+        List<ProductDTO> products = productRecommendationService.getRelated(id, limit);
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(Duration.ofSeconds(60)))
+                .body(ApiResponse.success(products));
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<ApiResponse<ProductDTO>> getProductById(@PathVariable Long id) {
+    public ResponseEntity<ApiResponse<ProductDTO>> getProductById(@PathVariable Long id, WebRequest request) {
+        if (catalogVersionService.checkNotModified(request)) {
+            return null;
+        }
         try {
             ProductDTO product = productService.getProductById(id);
-            return ResponseEntity.ok(ApiResponse.success(product));
+            return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(ApiResponse.success(product));
         } catch (RuntimeException e) {
-            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+            return ResponseEntity.badRequest().cacheControl(CacheControl.noStore())
+                    .body(ApiResponse.error(e.getMessage()));
         }
     }
 }
@@ -0,0 +1,26 @@
+package com.shoebank.nepalshop.controller;
+
+import com.shoebank.nepalshop.service.NavigationSnapshotService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+
+@RestController
+@RequestMapping("/api/storefront")
+@RequiredArgsConstructor
+@CrossOrigin
+public class StorefrontController {
+
+    private final NavigationSnapshotService navigationSnapshotService;
+
+    // Everything the home page needs on first paint in one round trip
+    @GetMapping("/home")
+    public ResponseEntity<byte[]> getHome(WebRequest request) {
+        NavigationSnapshotService.Payload home = navigationSnapshotService.home();
+        if (home.checkNotModified(request)) {
+            return null;
+        }
+        return home.toResponse(request);
+    }
+}
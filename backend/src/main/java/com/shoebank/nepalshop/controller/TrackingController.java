@@ -4,6 +4,7 @@ import com.shoebank.nepalshop.dto.ApiResponse;
 import com.shoebank.nepalshop.dto.DeliveryTrackingDTO;
 import com.shoebank.nepalshop.model.DeliveryTracking;
 import com.shoebank.nepalshop.repository.DeliveryTrackingRepository;
+import com.shoebank.nepalshop.service.OrderNumberGenerator;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -15,9 +16,11 @@ import org.springframework.web.bind.annotation.*;
 public class TrackingController {
 
     private final DeliveryTrackingRepository trackingRepository;
+    private final OrderNumberGenerator orderNumberGenerator;
 
     @GetMapping("/{orderNumber}")
     public ResponseEntity<ApiResponse<DeliveryTrackingDTO>> getTracking(@PathVariable String orderNumber) {
+        orderNumber = orderNumberGenerator.normalize(orderNumber);
         DeliveryTracking tracking = trackingRepository.findByOrderOrderNumber(orderNumber)
                 .orElse(null);
 
@@ -0,0 +1,18 @@
+package com.shoebank.nepalshop.dto;
+
+import lombok.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BulkUpdateResultDTO {
+    private int requested;
+    private int updated;
+    // Unknown ids, or a stockDelta that would take stock below zero
+    @Builder.Default
+    private List<Long> skippedIds = new ArrayList<>();
+}
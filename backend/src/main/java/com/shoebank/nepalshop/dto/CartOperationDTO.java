@@ -0,0 +1,34 @@
+package com.shoebank.nepalshop.dto;
+
+import jakarta.validation.constraints.*;
+import lombok.*;
+
+// One step of a batch cart edit, applied in list order
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CartOperationDTO {
+
+    public enum Type {
+        // Adds quantity to the line, creating it if needed
+        ADD,
+        // Sets the line's quantity; 0 or less removes it
+        UPDATE,
+        REMOVE
+    }
+
+    @NotNull(message = "Operation type is required")
+    private Type type;
+
+    @NotNull(message = "Product ID is required")
+    private Long productId;
+
+    private Integer quantity;
+
+    private String selectedSize;
+
+    private String selectedColor;
+
+    private String specialInstructions;
+}
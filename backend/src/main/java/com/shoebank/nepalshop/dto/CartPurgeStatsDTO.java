@@ -0,0 +1,19 @@
+package com.shoebank.nepalshop.dto;
+
+import lombok.*;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CartPurgeStatsDTO {
+    private long runs;
+    private long totalCartsPurged;
+    private long totalItemsPurged;
+    private LocalDateTime lastRunAt;
+    private long lastRunCarts;
+    private long lastRunItems;
+    private long lastRunBatches;
+    private long lastRunMillis;
+}
@@ -6,7 +6,7 @@ import java.util.List;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-@Builder
+@Builder(toBuilder = true)
 public class CategoryDTO {
     private Long id;
     private String name;
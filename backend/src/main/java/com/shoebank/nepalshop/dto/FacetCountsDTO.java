@@ -0,0 +1,17 @@
+package com.shoebank.nepalshop.dto;
+
+import lombok.*;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class FacetCountsDTO {
+    private long total;
+    private List<FacetValueDTO> brands;
+    private List<FacetValueDTO> genders;
+    private List<FacetValueDTO> occasions;
+    private List<FacetValueDTO> tags;
+    private List<PriceBucketDTO> priceBuckets;
+}
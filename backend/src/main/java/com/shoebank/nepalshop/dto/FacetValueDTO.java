@@ -0,0 +1,12 @@
+package com.shoebank.nepalshop.dto;
+
+import lombok.*;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class FacetValueDTO {
+    private String value;
+    private long count;
+}
@@ -0,0 +1,12 @@
+package com.shoebank.nepalshop.dto;
+
+import lombok.*;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ImportErrorDTO {
+    private int row; // 1-based data row, header excluded
+    private String message;
+}
@@ -0,0 +1,19 @@
+package com.shoebank.nepalshop.dto;
+
+import lombok.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ImportResultDTO {
+    private int rows;
+    private int imported;
+    private int failed;
+    // Capped; failed carries the full count
+    @Builder.Default
+    private List<ImportErrorDTO> errors = new ArrayList<>();
+}
@@ -0,0 +1,15 @@
+package com.shoebank.nepalshop.dto;
+
+import lombok.*;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OutboxStatsDTO {
+    private long pending;
+    private long dead;
+    private long delivered;
+    private long retried;
+    private long deadLettered;
+}
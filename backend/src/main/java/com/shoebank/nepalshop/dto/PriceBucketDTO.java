@@ -0,0 +1,14 @@
+package com.shoebank.nepalshop.dto;
+
+import lombok.*;
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PriceBucketDTO {
+    private BigDecimal min;
+    private BigDecimal max; // exclusive, null for the open-ended top bucket
+    private long count;
+}
@@ -0,0 +1,19 @@
+package com.shoebank.nepalshop.dto;
+
+import lombok.*;
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ProductFilter {
+    private Long categoryId;
+    private String search;
+    private BigDecimal minPrice;
+    private BigDecimal maxPrice;
+    private String brand;
+    private String gender;
+    private String occasion;
+    private String tag;
+}
@@ -0,0 +1,29 @@
+package com.shoebank.nepalshop.dto;
+
+import jakarta.validation.constraints.*;
+import lombok.*;
+import java.math.BigDecimal;
+
+// One entry of a bulk update; null fields are left unchanged
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ProductPatchDTO {
+
+    @NotNull(message = "Product id is required")
+    private Long id;
+
+    @DecimalMin(value = "0.01", message = "Price must be greater than 0")
+    private BigDecimal price;
+
+    @DecimalMin(value = "0", message = "Discount price cannot be negative")
+    private BigDecimal discountPrice;
+
+    // Added to the current stock; negative to take stock away
+    private Integer stockDelta;
+
+    private Boolean isAvailable;
+
+    private Boolean isFeatured;
+}
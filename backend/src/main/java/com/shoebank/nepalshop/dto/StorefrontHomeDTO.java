@@ -0,0 +1,16 @@
+package com.shoebank.nepalshop.dto;
+
+import lombok.*;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StorefrontHomeDTO {
+    // Catalog version all three lists were read at
+    private long version;
+    private List<CategoryDTO> categories;
+    private List<ProductDTO> featuredProducts;
+    private List<ProductDTO> newArrivals;
+}
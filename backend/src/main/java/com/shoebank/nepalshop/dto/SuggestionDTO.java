@@ -0,0 +1,14 @@
+package com.shoebank.nepalshop.dto;
+
+import lombok.*;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SuggestionDTO {
+    private String text;
+    private String type; // PRODUCT, BRAND, TAG
+    private Long productId;
+    private long popularity;
+}
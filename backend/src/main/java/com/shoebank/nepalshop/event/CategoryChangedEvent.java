@@ -0,0 +1,15 @@
+package com.shoebank.nepalshop.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Published when a category is created, renamed or deleted.
+ */
+@Getter
+@AllArgsConstructor
+public class CategoryChangedEvent {
+    private final Long categoryId;
+    private final String name;
+    private final String slug;
+}
@@ -0,0 +1,18 @@
+package com.shoebank.nepalshop.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Published by checkout once an order and its items have been saved.
+ */
+@Getter
+@AllArgsConstructor
+public class OrderPlacedEvent {
+    private final Long orderId;
+    private final String orderNumber;
+    private final String sessionId;
+    private final List<Long> productIds;
+}
@@ -0,0 +1,47 @@
+package com.shoebank.nepalshop.event;
+
+import com.shoebank.nepalshop.dto.ProductDTO;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Published by product writers so in-memory read models can follow the catalog.
+ * Listeners should react after the surrounding transaction commits.
+ */
+@Getter
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class ProductChangedEvent {
+
+    public enum Type {
+        SAVED, DELETED, STOCK_CHANGED,
+        // Many products written at once with plain SQL; only productIds is set
+        BULK
+    }
+
+    private final Type type;
+    private final Long productId;
+    private final ProductDTO product;
+    private final LocalDateTime createdAt;
+    private final Integer stock;
+    private final List<Long> productIds;
+
+    public static ProductChangedEvent saved(ProductDTO product, LocalDateTime createdAt) {
+        return new ProductChangedEvent(Type.SAVED, product.getId(), product, createdAt, product.getStock(), null);
+    }
+
+    public static ProductChangedEvent deleted(Long productId) {
+        return new ProductChangedEvent(Type.DELETED, productId, null, null, null, null);
+    }
+
+    public static ProductChangedEvent stockChanged(Long productId, int stock) {
+        return new ProductChangedEvent(Type.STOCK_CHANGED, productId, null, null, stock, null);
+    }
+
+    public static ProductChangedEvent bulk(List<Long> productIds) {
+        return new ProductChangedEvent(Type.BULK, null, null, null, null, List.copyOf(productIds));
+    }
+}
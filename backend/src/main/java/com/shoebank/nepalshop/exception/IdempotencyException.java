@@ -0,0 +1,30 @@
+package com.shoebank.nepalshop.exception;
+
+import lombok.Getter;
+import org.springframework.http.HttpStatus;
+
+/**
+ * An Idempotency-Key request that can not be answered now: 409 while the
+ * first request with the key is still running (retry with the same key),
+ * 422 when the key was used for a different request.
+ */
+@Getter
+public class IdempotencyException extends RuntimeException {
+
+    private final HttpStatus status;
+
+    private IdempotencyException(HttpStatus status, String message) {
+        super(message);
+        this.status = status;
+    }
+
+    public static IdempotencyException inProgress() {
+        return new IdempotencyException(HttpStatus.CONFLICT,
+                "A request with this Idempotency-Key is still being processed");
+    }
+
+    public static IdempotencyException mismatch() {
+        return new IdempotencyException(HttpStatus.UNPROCESSABLE_ENTITY,
+                "Idempotency-Key was already used for a different request");
+    }
+}
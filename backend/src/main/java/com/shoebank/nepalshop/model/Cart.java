@@ -7,7 +7,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "carts")
+@Table(name = "carts", indexes = @Index(name = "idx_carts_updated", columnList = "updated_at"))
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
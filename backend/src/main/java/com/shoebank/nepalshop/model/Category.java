@@ -5,7 +5,7 @@ import lombok.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "categories")
+@Table(name = "categories", indexes = @Index(name = "idx_categories_active_order", columnList = "is_active, display_order"))
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
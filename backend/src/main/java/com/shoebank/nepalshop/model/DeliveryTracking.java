@@ -13,7 +13,7 @@ import java.time.LocalDateTime;
 public class DeliveryTracking {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @NodeScopedId
     private Long id;
     
     @OneToOne(fetch = FetchType.LAZY)
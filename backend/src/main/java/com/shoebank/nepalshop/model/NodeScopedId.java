@@ -0,0 +1,18 @@
+package com.shoebank.nepalshop.model;
+
+import org.hibernate.annotations.IdGeneratorType;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Id assigned in memory by {@link NodeScopedIdGenerator} before the insert,
+ * so Hibernate can batch inserts of the entity.
+ */
+@IdGeneratorType(NodeScopedIdGenerator.class)
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD, ElementType.METHOD})
+public @interface NodeScopedId {
+}
@@ -8,7 +8,15 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "orders")
+// Indexes follow OrderRepository: admin lists (all / by status, newest first, keyset on id),
+// customer lookup by phone, revenue by payment status and the kitchen queue by type
+@Table(name = "orders", indexes = {
+        @Index(name = "idx_orders_created", columnList = "created_at, id"),
+        @Index(name = "idx_orders_status_created", columnList = "order_status, created_at, id"),
+        @Index(name = "idx_orders_phone_created", columnList = "customer_phone, created_at"),
+        @Index(name = "idx_orders_payment_created", columnList = "payment_status, created_at"),
+        @Index(name = "idx_orders_type_status", columnList = "order_type, order_status")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -16,7 +24,7 @@ import java.util.List;
 public class Order {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @NodeScopedId
     private Long id;
     
     @Column(name = "order_number", nullable = false, unique = true)
@@ -86,9 +94,6 @@ public class Order {
     protected void onCreate() {
         createdAt = LocalDateTime.now();
         updatedAt = LocalDateTime.now();
-        if (orderNumber == null) {
-            orderNumber = generateOrderNumber();
-        }
     }
     
     @PreUpdate
@@ -96,10 +101,6 @@ public class Order {
         updatedAt = LocalDateTime.now();
     }
     
-    private String generateOrderNumber() {
-        return "ORD" + System.currentTimeMillis();
-    }
-    
     public void addItem(OrderItem item) {
         items.add(item);
         item.setOrder(this);
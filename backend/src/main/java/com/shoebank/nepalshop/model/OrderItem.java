@@ -13,7 +13,7 @@ import java.math.BigDecimal;
 public class OrderItem {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @NodeScopedId
     private Long id;
     
     @ManyToOne(fetch = FetchType.LAZY)
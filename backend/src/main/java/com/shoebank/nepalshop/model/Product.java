@@ -7,7 +7,14 @@ import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
-@Table(name = "products")
+// Indexes follow ProductRepository: category/availability listings newest-first,
+// price filters and the featured strip
+@Table(name = "products", indexes = {
+        @Index(name = "idx_products_category_available_created", columnList = "category_id, is_available, created_at"),
+        @Index(name = "idx_products_available_created", columnList = "is_available, created_at, id"),
+        @Index(name = "idx_products_available_price", columnList = "is_available, price"),
+        @Index(name = "idx_products_featured_available", columnList = "is_featured, is_available")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -57,7 +64,8 @@ public class Product {
     private String occasion;
 
     @ElementCollection
-    @CollectionTable(name = "product_tags", joinColumns = @JoinColumn(name = "product_id"))
+    @CollectionTable(name = "product_tags", joinColumns = @JoinColumn(name = "product_id"),
+            indexes = @Index(name = "idx_product_tags_tag", columnList = "tag"))
     @Column(name = "tag")
     private List<String> tags;
 
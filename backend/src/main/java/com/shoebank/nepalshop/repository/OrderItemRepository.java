@@ -0,0 +1,16 @@
+package com.shoebank.nepalshop.repository;
+
+import com.shoebank.nepalshop.model.OrderItem;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface OrderItemRepository extends JpaRepository<OrderItem, Long> {
+
+    // [productId, number of orders containing it]
+    @Query("SELECT oi.product.id, COUNT(DISTINCT oi.order.id) FROM OrderItem oi GROUP BY oi.product.id")
+    List<Object[]> countOrdersByProduct();
+}
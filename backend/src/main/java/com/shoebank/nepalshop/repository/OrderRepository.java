@@ -21,6 +21,25 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
     
     Page<Order> findAllByOrderByCreatedAtDesc(Pageable pageable);
     
+    // Keyset pagination: first page, then everything strictly older than the (createdAt, id) cursor
+    List<Order> findAllByOrderByCreatedAtDescIdDesc(Pageable pageable);
+    
+    List<Order> findByOrderStatusOrderByCreatedAtDescIdDesc(Order.OrderStatus status, Pageable pageable);
+    
+    @Query("SELECT o FROM Order o WHERE o.createdAt < :createdAt OR (o.createdAt = :createdAt AND o.id < :id) " +
+           "ORDER BY o.createdAt DESC, o.id DESC")
+    List<Order> findPageBefore(@Param("createdAt") LocalDateTime createdAt,
+                               @Param("id") Long id,
+                               Pageable pageable);
+    
+    @Query("SELECT o FROM Order o WHERE o.orderStatus = :status " +
+           "AND (o.createdAt < :createdAt OR (o.createdAt = :createdAt AND o.id < :id)) " +
+           "ORDER BY o.createdAt DESC, o.id DESC")
+    List<Order> findPageBeforeByStatus(@Param("status") Order.OrderStatus status,
+                                       @Param("createdAt") LocalDateTime createdAt,
+                                       @Param("id") Long id,
+                                       Pageable pageable);
+    
     List<Order> findByCustomerPhoneOrderByCreatedAtDesc(String phone);
     
     @Query("SELECT o FROM Order o WHERE o.createdAt BETWEEN :startDate AND :endDate ORDER BY o.createdAt DESC")
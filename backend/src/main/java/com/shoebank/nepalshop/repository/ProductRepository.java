@@ -3,23 +3,53 @@ package com.shoebank.nepalshop.repository;
 import com.shoebank.nepalshop.model.Product;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface ProductRepository extends JpaRepository<Product, Long> {
 
+       // Shared by the offset and keyset variants of the filter query
+       String FILTER_PREDICATES = "p.isAvailable = true " +
+                     "AND (:categoryId IS NULL OR p.category.id = :categoryId) " +
+                     "AND (:search IS NULL OR :search = '' OR LOWER(p.name) LIKE LOWER(CONCAT('%', :search, '%')) OR LOWER(p.description) LIKE LOWER(CONCAT('%', :search, '%'))) "
+                     +
+                     "AND (:minPrice IS NULL OR p.price >= :minPrice) " +
+                     "AND (:maxPrice IS NULL OR p.price <= :maxPrice) " +
+                     "AND (:brand IS NULL OR LOWER(p.brand) = LOWER(:brand)) " +
+                     "AND (:gender IS NULL OR LOWER(p.gender) = LOWER(:gender)) " +
+                     "AND (:occasion IS NULL OR LOWER(p.occasion) = LOWER(:occasion)) " +
+                     "AND (:tag IS NULL OR LOWER(t) = LOWER(:tag))";
+
        Page<Product> findByCategoryIdAndIsAvailableTrue(Long categoryId, Pageable pageable);
 
        Page<Product> findByIsAvailableTrue(Pageable pageable);
 
+       // Listing reads join the category up front; images and tags are batch-loaded per page
+       // (hibernate.default_batch_fetch_size), so a page costs a fixed number of queries
+       @EntityGraph(attributePaths = "category")
+       List<Product> findByIsAvailableTrue();
+
+       @EntityGraph(attributePaths = "category")
        List<Product> findByIsFeaturedTrueAndIsAvailableTrue();
 
+       @EntityGraph(attributePaths = "category")
+       List<Product> findWithCategoryByIdIn(Collection<Long> ids);
+
+       @EntityGraph(attributePaths = "category")
+       @Query("SELECT p FROM Product p WHERE p.id = :id")
+       Optional<Product> findWithCategoryById(@Param("id") Long id);
+
        @Query("SELECT p FROM Product p WHERE p.isAvailable = true AND " +
                      "(LOWER(p.name) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
                      "LOWER(p.description) LIKE LOWER(CONCAT('%', :search, '%')))")
@@ -33,16 +63,8 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
                      Pageable pageable);
 
        // Unified filter query with all filterable attributes
-       @Query("SELECT DISTINCT p FROM Product p LEFT JOIN p.tags t WHERE p.isAvailable = true " +
-                     "AND (:categoryId IS NULL OR p.category.id = :categoryId) " +
-                     "AND (:search IS NULL OR :search = '' OR LOWER(p.name) LIKE LOWER(CONCAT('%', :search, '%')) OR LOWER(p.description) LIKE LOWER(CONCAT('%', :search, '%'))) "
-                     +
-                     "AND (:minPrice IS NULL OR p.price >= :minPrice) " +
-                     "AND (:maxPrice IS NULL OR p.price <= :maxPrice) " +
-                     "AND (:brand IS NULL OR LOWER(p.brand) = LOWER(:brand)) " +
-                     "AND (:gender IS NULL OR LOWER(p.gender) = LOWER(:gender)) " +
-                     "AND (:occasion IS NULL OR LOWER(p.occasion) = LOWER(:occasion)) " +
-                     "AND (:tag IS NULL OR LOWER(t) = LOWER(:tag))")
+       @EntityGraph(attributePaths = "category")
+       @Query("SELECT DISTINCT p FROM Product p LEFT JOIN p.tags t WHERE " + FILTER_PREDICATES)
        Page<Product> findByFilters(@Param("categoryId") Long categoryId,
                      @Param("search") String search,
                      @Param("minPrice") BigDecimal minPrice,
@@ -53,7 +75,41 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
                      @Param("tag") String tag,
                      Pageable pageable);
 
+       // Keyset variant of findByFilters for newest-first listings: no OFFSET and no count query
+       @EntityGraph(attributePaths = "category")
+       @Query("SELECT DISTINCT p FROM Product p LEFT JOIN p.tags t WHERE " + FILTER_PREDICATES + " " +
+                     "AND (:afterCreatedAt IS NULL OR p.createdAt < :afterCreatedAt " +
+                     "OR (p.createdAt = :afterCreatedAt AND p.id < :afterId)) " +
+                     "ORDER BY p.createdAt DESC, p.id DESC")
+       List<Product> findByFiltersBefore(@Param("categoryId") Long categoryId,
+                     @Param("search") String search,
+                     @Param("minPrice") BigDecimal minPrice,
+                     @Param("maxPrice") BigDecimal maxPrice,
+                     @Param("brand") String brand,
+                     @Param("gender") String gender,
+                     @Param("occasion") String occasion,
+                     @Param("tag") String tag,
+                     @Param("afterCreatedAt") LocalDateTime afterCreatedAt,
+                     @Param("afterId") Long afterId,
+                     Pageable pageable);
+
        List<Product> findByCategorySlugAndIsAvailableTrue(String categorySlug);
 
        long countByCategoryId(Long categoryId);
+
+       // [productId, categoryId] for every product, or for the given ones
+       @Query("SELECT p.id, p.category.id FROM Product p")
+       List<Object[]> findAllCategoryIds();
+
+       @Query("SELECT p.id, p.category.id FROM Product p WHERE p.id IN :ids")
+       List<Object[]> findCategoryIdsByIdIn(@Param("ids") Collection<Long> ids);
+
+       // Takes stock only if enough is left; returns 0 when it is not, so concurrent checkouts can not oversell
+       @Modifying
+       @Query("UPDATE Product p SET p.stock = p.stock - :quantity, p.updatedAt = CURRENT_TIMESTAMP " +
+                     "WHERE p.id = :id AND p.stock >= :quantity")
+       int decrementStock(@Param("id") Long id, @Param("quantity") int quantity);
+
+       @Query("SELECT p.id, p.stock FROM Product p WHERE p.id IN :ids")
+       List<Object[]> findStockByIdIn(@Param("ids") Collection<Long> ids);
 }
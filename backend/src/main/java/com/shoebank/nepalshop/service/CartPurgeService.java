@@ -0,0 +1,158 @@
+package com.shoebank.nepalshop.service;
+
+import com.shoebank.nepalshop.dto.CartPurgeStatsDTO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Deletes carts nobody has changed for app.cart.purge.ttl-days.
+ *
+ * Works oldest first in batches of app.cart.purge.batch-size carts, each
+ * batch its own short transaction, with a pause in between so the deletes
+ * never hold locks on carts / cart_items for long. Each delete re-checks
+ * updated_at, so a cart edited after it was picked is kept.
+ */
+@Service
+@Slf4j
+public class CartPurgeService {
+
+    private static final String SELECT_IDLE =
+            "SELECT id, session_id FROM carts WHERE updated_at < ? ORDER BY updated_at LIMIT ?";
+    private static final String DELETE_ITEMS =
+            "DELETE FROM cart_items WHERE cart_id IN "
+                    + "(SELECT id FROM carts WHERE id IN (:ids) AND updated_at < :cutoff)";
+    private static final String DELETE_CARTS =
+            "DELETE FROM carts WHERE id IN (:ids) AND updated_at < :cutoff";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final CartStore cartStore;
+    private final StockReservationService stockReservationService;
+    private final long ttlDays;
+    private final int batchSize;
+    private final long pauseMillis;
+
+    private final AtomicLong runs = new AtomicLong();
+    private final AtomicLong totalCarts = new AtomicLong();
+    private final AtomicLong totalItems = new AtomicLong();
+    private volatile CartPurgeStatsDTO lastRun;
+
+    public CartPurgeService(JdbcTemplate jdbcTemplate,
+                            NamedParameterJdbcTemplate namedJdbcTemplate,
+                            TransactionTemplate transactionTemplate,
+                            CartStore cartStore,
+                            StockReservationService stockReservationService,
+                            @Value("${app.cart.purge.ttl-days:14}") long ttlDays,
+                            @Value("${app.cart.purge.batch-size:500}") int batchSize,
+                            @Value("${app.cart.purge.pause-ms:200}") long pauseMillis) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = namedJdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.cartStore = cartStore;
+        this.stockReservationService = stockReservationService;
+        this.ttlDays = ttlDays;
+        this.batchSize = batchSize;
+        this.pauseMillis = pauseMillis;
+    }
+
+    @Scheduled(fixedDelayString = "${app.cart.purge.interval-ms:3600000}",
+            initialDelayString = "${app.cart.purge.initial-delay-ms:300000}")
+    public void purge() {
+        long started = System.currentTimeMillis();
+        Timestamp cutoff = Timestamp.valueOf(LocalDateTime.now().minusDays(ttlDays));
+        long carts = 0;
+        long items = 0;
+        long batches = 0;
+
+        try {
+            while (true) {
+                long[] deleted = purgeBatch(cutoff);
+                if (deleted == null) {
+                    break;
+                }
+                batches++;
+                items += deleted[0];
+                carts += deleted[1];
+                if (deleted[2] < batchSize) {
+                    break;
+                }
+                Thread.sleep(pauseMillis);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            log.error("Cart purge stopped after {} batches", batches, e);
+        }
+
+        long elapsed = System.currentTimeMillis() - started;
+        runs.incrementAndGet();
+        totalCarts.addAndGet(carts);
+        totalItems.addAndGet(items);
+        lastRun = CartPurgeStatsDTO.builder()
+                .lastRunAt(LocalDateTime.now())
+                .lastRunCarts(carts)
+                .lastRunItems(items)
+                .lastRunBatches(batches)
+                .lastRunMillis(elapsed)
+                .build();
+        if (carts > 0) {
+            log.info("Purged {} idle carts ({} items) in {} batches, {} ms", carts, items, batches, elapsed);
+        }
+    }
+
+    public CartPurgeStatsDTO getStats() {
+        CartPurgeStatsDTO last = lastRun;
+        return CartPurgeStatsDTO.builder()
+                .runs(runs.get())
+                .totalCartsPurged(totalCarts.get())
+                .totalItemsPurged(totalItems.get())
+                .lastRunAt(last != null ? last.getLastRunAt() : null)
+                .lastRunCarts(last != null ? last.getLastRunCarts() : 0)
+                .lastRunItems(last != null ? last.getLastRunItems() : 0)
+                .lastRunBatches(last != null ? last.getLastRunBatches() : 0)
+                .lastRunMillis(last != null ? last.getLastRunMillis() : 0)
+                .build();
+    }
+
+    // {items deleted, carts deleted, carts picked}, or null when nothing is left to purge
+    private long[] purgeBatch(Timestamp cutoff) {
+        List<Long> ids = new ArrayList<>(batchSize);
+        List<String> sessionIds = new ArrayList<>(batchSize);
+        jdbcTemplate.query(SELECT_IDLE, rs -> {
+            ids.add(rs.getLong(1));
+            sessionIds.add(rs.getString(2));
+        }, cutoff, batchSize);
+        if (ids.isEmpty()) {
+            return null;
+        }
+
+        Map<String, Object> params = Map.of("ids", ids, "cutoff", cutoff);
+        // No cart write may run between the delete and telling the store about it
+        return cartStore.exclusive(() -> {
+            long[] deleted = transactionTemplate.execute(status -> new long[] {
+                    namedJdbcTemplate.update(DELETE_ITEMS, params),
+                    namedJdbcTemplate.update(DELETE_CARTS, params),
+                    ids.size()});
+            for (String sessionId : sessionIds) {
+                // A cart still live in memory keeps its holds
+                if (!cartStore.detach(sessionId)) {
+                    stockReservationService.release(sessionId);
+                }
+            }
+            return deleted;
+        });
+    }
+}
@@ -1,136 +1,214 @@
 package com.shoebank.nepalshop.service;
 
 import com.shoebank.nepalshop.dto.*;
-import com.shoebank.nepalshop.model.*;
-import com.shoebank.nepalshop.repository.*;
+import com.shoebank.nepalshop.event.OrderPlacedEvent;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Set;
 
 @Service
 @RequiredArgsConstructor
 public class CartService {
 
-    private final CartRepository cartRepository;
-    private final CartItemRepository cartItemRepository;
-    private final ProductRepository productRepository;
+    private final CartStore cartStore;
+    private final CartSessionService cartSessionService;
+    private final ProductService productService;
+    private final StockReservationService stockReservationService;
 
+    // Unknown or forged sessions see an empty cart; nothing is stored for them
     public CartDTO getCart(String sessionId) {
-        Cart cart = getOrCreateCart(sessionId);
-        return convertToDTO(cart);
+        if (!cartSessionService.isValid(sessionId)) {
+            return CartDTO.builder()
+                    .sessionId(sessionId)
+                    .items(List.of())
+                    .subtotal(BigDecimal.ZERO)
+                    .totalItems(0)
+                    .build();
+        }
+        return cartStore.view(sessionId, this::convertToDTO);
     }
 
-    @Transactional
     public CartDTO addToCart(String sessionId, AddToCartRequest request) {
-        Cart cart = getOrCreateCart(sessionId);
-        Product product = productRepository.findById(request.getProductId())
-                .orElseThrow(() -> new RuntimeException("Product not found"));
+        cartSessionService.requireValid(sessionId);
+        ProductDTO product = productService.getProductById(request.getProductId());
 
-        if (!product.getIsAvailable()) {
+        if (!Boolean.TRUE.equals(product.getIsAvailable())) {
             throw new RuntimeException("Product is not available");
         }
 
-        if (product.getStock() < request.getQuantity()) {
-            throw new RuntimeException("Insufficient stock. Available: " + product.getStock());
-        }
-
-        // Check if product already in cart
-        CartItem existingItem = cart.getItems().stream()
-                .filter(item -> item.getProduct().getId().equals(request.getProductId()))
-                .findFirst()
-                .orElse(null);
-
-        if (existingItem != null) {
-            int newQuantity = existingItem.getQuantity() + request.getQuantity();
-            if (newQuantity > product.getStock()) {
-                throw new RuntimeException("Cannot add more. Stock limit: " + product.getStock());
+        return cartStore.withCart(sessionId, cart -> {
+            // Check if product already in cart
+            CartStore.Line existingItem = cart.get(product.getId());
+
+            if (existingItem != null) {
+                int newQuantity = existingItem.getQuantity() + request.getQuantity();
+                stockReservationService.hold(sessionId, product.getId(), newQuantity);
+                cart.put(existingItem.toBuilder()
+                        .quantity(newQuantity)
+                        .selectedSize(request.getSelectedSize())
+                        .selectedColor(request.getSelectedColor())
+                        .specialInstructions(request.getSpecialInstructions())
+                        .build());
+            } else {
+                stockReservationService.hold(sessionId, product.getId(), request.getQuantity());
+                cart.put(CartStore.Line.builder()
+                        .productId(product.getId())
+                        .quantity(request.getQuantity())
+                        .selectedSize(request.getSelectedSize())
+                        .selectedColor(request.getSelectedColor())
+                        .specialInstructions(request.getSpecialInstructions())
+                        .build());
             }
-            existingItem.setQuantity(newQuantity);
-            existingItem.setSelectedSize(request.getSelectedSize());
-            existingItem.setSelectedColor(request.getSelectedColor());
-            existingItem.setSpecialInstructions(request.getSpecialInstructions());
-        } else {
-            CartItem newItem = CartItem.builder()
-                    .cart(cart)
-                    .product(product)
-                    .quantity(request.getQuantity())
-                    .selectedSize(request.getSelectedSize())
-                    .selectedColor(request.getSelectedColor())
-                    .specialInstructions(request.getSpecialInstructions())
-                    .build();
-            cart.addItem(newItem);
-        }
-
-        return convertToDTO(cartRepository.save(cart));
+            return convertToDTO(cart);
+        });
     }
 
-    @Transactional
+    // Cart lines are keyed by product, so itemId is the product id
     public CartDTO updateCartItem(String sessionId, Long itemId, Integer quantity) {
-        Cart cart = cartRepository.findBySessionId(sessionId)
-                .orElseThrow(() -> new RuntimeException("Cart not found"));
-
-        CartItem item = cart.getItems().stream()
-                .filter(i -> i.getId().equals(itemId))
-                .findFirst()
-                .orElseThrow(() -> new RuntimeException("Item not found in cart"));
-
-        if (quantity <= 0) {
-            cart.removeItem(item);
-            cartItemRepository.delete(item);
-        } else {
-            if (quantity > item.getProduct().getStock()) {
-                throw new RuntimeException("Quantity exceeds available stock");
+        cartSessionService.requireValid(sessionId);
+        return cartStore.withCart(sessionId, cart -> {
+            CartStore.Line item = cart.get(itemId);
+            if (item == null) {
+                throw new RuntimeException("Item not found in cart");
             }
-            item.setQuantity(quantity);
-        }
 
-        return convertToDTO(cartRepository.save(cart));
+            if (quantity <= 0) {
+                stockReservationService.hold(sessionId, itemId, 0);
+                cart.remove(itemId);
+            } else {
+                stockReservationService.hold(sessionId, itemId, quantity);
+                cart.put(item.toBuilder().quantity(quantity).build());
+            }
+            return convertToDTO(cart);
+        });
     }
 
-    @Transactional
     public CartDTO removeFromCart(String sessionId, Long itemId) {
-        Cart cart = cartRepository.findBySessionId(sessionId)
-                .orElseThrow(() -> new RuntimeException("Cart not found"));
+        cartSessionService.requireValid(sessionId);
+        return cartStore.withCart(sessionId, cart -> {
+            if (!cart.remove(itemId)) {
+                throw new RuntimeException("Item not found in cart");
+            }
+            stockReservationService.hold(sessionId, itemId, 0);
+            return convertToDTO(cart);
+        });
+    }
 
-        CartItem item = cart.getItems().stream()
-                .filter(i -> i.getId().equals(itemId))
-                .findFirst()
-                .orElseThrow(() -> new RuntimeException("Item not found in cart"));
+    public void clearCart(String sessionId) {
+        cartSessionService.requireValid(sessionId);
+        cartStore.withCart(sessionId, cart -> {
+            cart.clear();
+            stockReservationService.release(sessionId);
+            return null;
+        });
+    }
 
-        cart.removeItem(item);
-        cartItemRepository.delete(item);
+    /**
+     * Apply the operations in order as one change: either all of them take
+     * effect or, if any fails, none do. Each product is looked up once and
+     * the holds for the final quantities are taken together, at the end.
+     */
+    public CartDTO applyBatch(String sessionId, List<CartOperationDTO> operations) {
+        cartSessionService.requireValid(sessionId);
+        Map<Long, ProductDTO> products = new HashMap<>();
+        for (CartOperationDTO operation : operations) {
+            if (!products.containsKey(operation.getProductId())) {
+                products.put(operation.getProductId(), productService.getProductById(operation.getProductId()));
+            }
+        }
 
-        return convertToDTO(cartRepository.save(cart));
-    }
+        return cartStore.withCart(sessionId, cart -> {
+            Map<Long, CartStore.Line> lines = new LinkedHashMap<>();
+            for (CartStore.Line line : cart.lines()) {
+                lines.put(line.getProductId(), line);
+            }
+            Set<Long> added = new HashSet<>();
+
+            for (CartOperationDTO operation : operations) {
+                Long productId = operation.getProductId();
+                CartStore.Line line = lines.get(productId);
+                switch (operation.getType()) {
+                    case ADD -> {
+                        if (operation.getQuantity() == null || operation.getQuantity() < 1) {
+                            throw new RuntimeException("Quantity must be at least 1");
+                        }
+                        CartStore.Line.LineBuilder builder = line != null ? line.toBuilder()
+                                : CartStore.Line.builder().productId(productId);
+                        lines.put(productId, builder
+                                .quantity((line != null ? line.getQuantity() : 0) + operation.getQuantity())
+                                .selectedSize(operation.getSelectedSize())
+                                .selectedColor(operation.getSelectedColor())
+                                .specialInstructions(operation.getSpecialInstructions())
+                                .build());
+                        added.add(productId);
+                    }
+                    case UPDATE -> {
+                        if (line == null) {
+                            throw new RuntimeException("Item not found in cart");
+                        }
+                        if (operation.getQuantity() == null) {
+                            throw new RuntimeException("Quantity is required");
+                        }
+                        if (operation.getQuantity() <= 0) {
+                            lines.remove(productId);
+                        } else {
+                            lines.put(productId, line.toBuilder().quantity(operation.getQuantity()).build());
+                        }
+                    }
+                    case REMOVE -> {
+                        if (lines.remove(productId) == null) {
+                            throw new RuntimeException("Item not found in cart");
+                        }
+                    }
+                }
+            }
 
-    @Transactional
-    public void clearCart(String sessionId) {
-        Cart cart = cartRepository.findBySessionId(sessionId)
-                .orElseThrow(() -> new RuntimeException("Cart not found"));
+            // One hold per touched product, on its final quantity; all fit or none change
+            Map<Long, Integer> holds = new HashMap<>();
+            for (Map.Entry<Long, ProductDTO> entry : products.entrySet()) {
+                CartStore.Line line = lines.get(entry.getKey());
+                ProductDTO product = entry.getValue();
+                if (line != null && added.contains(product.getId()) && !Boolean.TRUE.equals(product.getIsAvailable())) {
+                    throw new RuntimeException("Product is not available: " + product.getName());
+                }
+                holds.put(entry.getKey(), line != null ? line.getQuantity() : 0);
+            }
+            stockReservationService.holdAll(sessionId, holds);
 
-        cartItemRepository.deleteByCartId(cart.getId());
-        cart.getItems().clear();
-        cartRepository.save(cart);
+            cart.clear();
+            lines.values().forEach(cart::put);
+            return convertToDTO(cart);
+        });
     }
 
-    private Cart getOrCreateCart(String sessionId) {
-        return cartRepository.findBySessionId(sessionId)
-                .orElseGet(() -> {
-                    Cart newCart = Cart.builder()
-                            .sessionId(sessionId)
-                            .build();
-                    return cartRepository.save(newCart);
-                });
+    // The order has taken the items; checkout already cleared the stored rows
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderPlaced(OrderPlacedEvent event) {
+        cartStore.clear(event.getSessionId());
     }
 
-    private CartDTO convertToDTO(Cart cart) {
-        List<CartItemDTO> items = cart.getItems().stream()
-                .map(this::convertItemToDTO)
-                .collect(Collectors.toList());
+    private CartDTO convertToDTO(CartStore.Contents cart) {
+        List<CartItemDTO> items = new ArrayList<>();
+        for (CartStore.Line line : cart.lines()) {
+            ProductDTO product;
+            try {
+                product = productService.getProductById(line.getProductId());
+            } catch (RuntimeException e) {
+                // Product was deleted since it was added
+                continue;
+            }
+            items.add(convertItemToDTO(line, product,
+                    stockReservationService.availableFor(cart.sessionId(), line.getProductId())));
+        }
 
         BigDecimal subtotal = items.stream()
                 .map(CartItemDTO::getSubtotal)
@@ -141,20 +219,19 @@ public class CartService {
                 .sum();
 
         return CartDTO.builder()
-                .id(cart.getId())
-                .sessionId(cart.getSessionId())
+                .id(cart.cartId())
+                .sessionId(cart.sessionId())
                 .items(items)
                 .subtotal(subtotal)
                 .totalItems(totalItems)
                 .build();
     }
 
-    private CartItemDTO convertItemToDTO(CartItem item) {
-        Product product = item.getProduct();
+    private CartItemDTO convertItemToDTO(CartStore.Line item, ProductDTO product, int availableStock) {
         BigDecimal price = product.getDiscountPrice() != null ? product.getDiscountPrice() : product.getPrice();
 
         return CartItemDTO.builder()
-                .id(item.getId())
+                .id(product.getId())
                 .productId(product.getId())
                 .productName(product.getName())
                 .productImage(product.getImages() != null && !product.getImages().isEmpty() ? product.getImages().get(0)
@@ -166,7 +243,7 @@ public class CartService {
                 .selectedColor(item.getSelectedColor())
                 .specialInstructions(item.getSpecialInstructions())
                 .subtotal(price.multiply(BigDecimal.valueOf(item.getQuantity())))
-                .availableStock(product.getStock())
+                .availableStock(availableStock)
                 .build();
     }
 }
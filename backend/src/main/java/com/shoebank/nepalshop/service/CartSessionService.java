@@ -0,0 +1,77 @@
+package com.shoebank.nepalshop.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Issues and checks cart session ids.
+ *
+ * An id is 16 random bytes plus an HMAC-SHA256 tag over them, both base64url,
+ * joined by a dot. Only ids issued here verify, so made-up X-Session-Id values
+ * can not create carts.
+ */
+@Service
+public class CartSessionService {
+
+    private static final int ID_BYTES = 16;
+    private static final int TAG_BYTES = 16;
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private final SecretKeySpec key;
+    private final SecureRandom random = new SecureRandom();
+
+    public CartSessionService(@Value("${app.cart.session-secret:${jwt.secret}}") String secret) {
+        this.key = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), ALGORITHM);
+    }
+
+    public String issue() {
+        byte[] id = new byte[ID_BYTES];
+        random.nextBytes(id);
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        return encoder.encodeToString(id) + "." + encoder.encodeToString(tag(id));
+    }
+
+    public boolean isValid(String sessionId) {
+        if (sessionId == null) {
+            return false;
+        }
+        int dot = sessionId.indexOf('.');
+        if (dot <= 0 || dot != sessionId.lastIndexOf('.')) {
+            return false;
+        }
+        try {
+            Base64.Decoder decoder = Base64.getUrlDecoder();
+            byte[] id = decoder.decode(sessionId.substring(0, dot));
+            byte[] tag = decoder.decode(sessionId.substring(dot + 1));
+            return id.length == ID_BYTES && MessageDigest.isEqual(tag, tag(id));
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    // Throws for anything this service did not issue
+    public void requireValid(String sessionId) {
+        if (!isValid(sessionId)) {
+            throw new RuntimeException("Invalid session, please reload the page");
+        }
+    }
+
+    private byte[] tag(byte[] id) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return Arrays.copyOf(mac.doFinal(id), TAG_BYTES);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
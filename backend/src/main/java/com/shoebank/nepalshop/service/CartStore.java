@@ -0,0 +1,553 @@
+package com.shoebank.nepalshop.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Session-keyed carts held in memory and written behind to carts / cart_items.
+ *
+ * Reads and edits work on the in-memory copy under a per-cart lock; a miss
+ * loads the session's cart from the database once. Edited carts are queued
+ * and a scheduled flush writes them in JDBC batches, many carts per
+ * transaction, replacing each cart's rows with its current lines. Checkout
+ * calls {@link #flush(String)} first so the order is built from what the
+ * shopper last saw; writers take turns one batch at a time, so it never
+ * waits behind the whole queue. Clean carts left idle are dropped from memory.
+ *
+ * When a batch fails its carts are written again one by one, so one bad cart
+ * only holds back itself. A cart that still fails on its own loses any lines
+ * whose product has since been deleted before it is tried once more.
+ *
+ * A cart holds at most one line per product, so lines are keyed by product id.
+ * The store assumes a session is served by one instance.
+ */
+@Component
+@Slf4j
+public class CartStore {
+
+    private static final String SELECT_CART =
+            "SELECT id FROM carts WHERE session_id = ?";
+    private static final String SELECT_CART_IDS =
+            "SELECT id, session_id FROM carts WHERE session_id IN (:sessionIds)";
+    private static final String SELECT_LINES =
+            "SELECT product_id, quantity, selected_size, selected_color, special_instructions "
+                    + "FROM cart_items WHERE cart_id = ? ORDER BY id";
+    private static final String INSERT_CART =
+            "INSERT INTO carts (session_id, created_at, updated_at) VALUES (?, ?, ?)";
+    private static final String TOUCH_CART =
+            "UPDATE carts SET updated_at = ? WHERE id = ?";
+    private static final String DELETE_LINES =
+            "DELETE FROM cart_items WHERE cart_id IN (:cartIds)";
+    private static final String SELECT_PRODUCT_IDS =
+            "SELECT id FROM products WHERE id IN (:ids)";
+    private static final String INSERT_LINE =
+            "INSERT INTO cart_items (cart_id, product_id, quantity, selected_size, selected_color, "
+                    + "special_instructions) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final TransactionTemplate writeTx;
+    private final int batchSize;
+    private final long idleMillis;
+
+    private final Map<String, CartState> carts = new ConcurrentHashMap<>();
+    private final Set<String> dirty = ConcurrentHashMap.newKeySet();
+    // One writer at a time, so an older copy of a cart can never land after a newer one.
+    // Fair, so a checkout's flush goes next instead of after every remaining batch
+    private final ReentrantLock flushLock = new ReentrantLock(true);
+
+    public CartStore(JdbcTemplate jdbcTemplate,
+                     NamedParameterJdbcTemplate namedJdbcTemplate,
+                     PlatformTransactionManager transactionManager,
+                     @Value("${app.cart.batch-size:200}") int batchSize,
+                     @Value("${app.cart.idle-minutes:30}") long idleMinutes) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = namedJdbcTemplate;
+        this.batchSize = batchSize;
+        this.idleMillis = TimeUnit.MINUTES.toMillis(idleMinutes);
+        // A cart write commits on its own, never as part of a caller's transaction
+        this.writeTx = new TransactionTemplate(transactionManager);
+        this.writeTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Run {@code action} against the session's cart while holding its lock.
+     * Changes made through {@link Contents} are queued for the next flush,
+     * including when the action throws after making them.
+     */
+    public <T> T withCart(String sessionId, Function<Contents, T> action) {
+        while (true) {
+            CartState state = state(sessionId);
+            synchronized (state) {
+                if (state.evicted) {
+                    continue;
+                }
+                state.lastAccess = System.currentTimeMillis();
+                Contents contents = new Contents(state);
+                try {
+                    return action.apply(contents);
+                } finally {
+                    if (contents.changed) {
+                        state.version++;
+                        dirty.add(sessionId);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Run a read-only {@code action} against the session's cart. Uses the copy
+     * held in memory if there is one; otherwise reads the stored cart, and
+     * only keeps it in memory if it has lines, so looking at an empty cart
+     * leaves nothing behind.
+     */
+    public <T> T view(String sessionId, Function<Contents, T> action) {
+        if (!carts.containsKey(sessionId)) {
+            CartState loaded = load(sessionId);
+            if (loaded.lines.isEmpty()) {
+                return action.apply(new Contents(loaded));
+            }
+            carts.putIfAbsent(sessionId, loaded);
+        }
+        return withCart(sessionId, action);
+    }
+
+    /**
+     * Empty the session's cart if it is held in memory. The database rows are
+     * removed by the next flush.
+     */
+    public void clear(String sessionId) {
+        CartState state = carts.get(sessionId);
+        if (state == null) {
+            return;
+        }
+        synchronized (state) {
+            if (!state.evicted && !state.lines.isEmpty()) {
+                state.lines.clear();
+                state.version++;
+                dirty.add(sessionId);
+            }
+        }
+    }
+
+    /**
+     * Write the session's pending changes now. Throws if the write fails; the
+     * changes stay queued in that case.
+     */
+    public void flush(String sessionId) {
+        flushLock.lock();
+        try {
+            if (!dirty.remove(sessionId)) {
+                return;
+            }
+            Pending pending = pending(sessionId);
+            if (pending != null) {
+                try {
+                    writeOne(pending);
+                } catch (RuntimeException e) {
+                    dirty.add(sessionId);
+                    throw e;
+                }
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Run {@code work} while no flush is writing. Used by the cart purge so a
+     * write can not land between its delete and {@link #detach}.
+     */
+    public <T> T exclusive(Supplier<T> work) {
+        flushLock.lock();
+        try {
+            return work.get();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * The session's stored cart may have been deleted. A copy still held in
+     * memory is in use, so it is written again as a new cart if it has lines;
+     * returns whether that is the case.
+     */
+    public boolean detach(String sessionId) {
+        CartState state = carts.get(sessionId);
+        if (state == null) {
+            return false;
+        }
+        synchronized (state) {
+            state.cartId = null;
+            if (!state.evicted && !state.lines.isEmpty()) {
+                state.version++;
+                dirty.add(sessionId);
+                return true;
+            }
+            return false;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.cart.flush-ms:2000}")
+    @PreDestroy
+    public void flushAll() {
+        // Iterate a copy: a failed write puts its carts back into the set
+        Iterator<String> sessionIds = new ArrayList<>(dirty).iterator();
+        while (sessionIds.hasNext()) {
+            // The lock is held per batch, so a checkout's flush waits for one batch at most
+            flushLock.lock();
+            try {
+                List<Pending> batch = new ArrayList<>(batchSize);
+                while (batch.size() < batchSize && sessionIds.hasNext()) {
+                    String sessionId = sessionIds.next();
+                    if (!dirty.remove(sessionId)) {
+                        continue;
+                    }
+                    Pending pending = pending(sessionId);
+                    if (pending != null) {
+                        batch.add(pending);
+                    }
+                }
+                if (!batch.isEmpty()) {
+                    writeQuietly(batch);
+                }
+            } finally {
+                flushLock.unlock();
+            }
+        }
+        evictIdle();
+    }
+
+    private CartState state(String sessionId) {
+        CartState state = carts.get(sessionId);
+        if (state != null) {
+            return state;
+        }
+        // Loaded outside the map so a slow read does not block other sessions
+        CartState loaded = load(sessionId);
+        state = carts.putIfAbsent(sessionId, loaded);
+        return state != null ? state : loaded;
+    }
+
+    private CartState load(String sessionId) {
+        CartState state = new CartState(sessionId);
+        List<Long> ids = jdbcTemplate.queryForList(SELECT_CART, Long.class, sessionId);
+        if (!ids.isEmpty()) {
+            state.cartId = ids.get(0);
+            jdbcTemplate.query(SELECT_LINES, rs -> {
+                Line line = Line.builder()
+                        .productId(rs.getLong(1))
+                        .quantity(rs.getInt(2))
+                        .selectedSize(rs.getString(3))
+                        .selectedColor(rs.getString(4))
+                        .specialInstructions(rs.getString(5))
+                        .build();
+                state.lines.put(line.getProductId(), line);
+            }, state.cartId);
+        }
+        return state;
+    }
+
+    private Pending pending(String sessionId) {
+        CartState state = carts.get(sessionId);
+        if (state == null) {
+            return null;
+        }
+        synchronized (state) {
+            return state.evicted ? null
+                    : new Pending(sessionId, state, state.cartId, List.copyOf(state.lines.values()), state.version);
+        }
+    }
+
+    private void writeQuietly(List<Pending> batch) {
+        if (batch.size() > 1) {
+            try {
+                write(batch);
+                return;
+            } catch (RuntimeException e) {
+                log.warn("Failed to write {} carts, retrying them one by one", batch.size(), e);
+            }
+        }
+        for (Pending pending : batch) {
+            try {
+                writeOne(pending);
+            } catch (RuntimeException e) {
+                dirty.add(pending.sessionId);
+                log.error("Failed to write cart of session {}, will retry", pending.sessionId, e);
+            }
+        }
+    }
+
+    // A cart that fails on its own most likely holds a product deleted since it was added
+    private void writeOne(Pending pending) {
+        try {
+            write(List.of(pending));
+        } catch (DataIntegrityViolationException e) {
+            Pending pruned = withoutDeletedProducts(pending);
+            if (pruned == null) {
+                throw e;
+            }
+            write(List.of(pruned));
+        }
+    }
+
+    // Drop lines whose product is gone from the cart itself; null if every product still exists
+    private Pending withoutDeletedProducts(Pending pending) {
+        Set<Long> productIds = new HashSet<>();
+        pending.lines.forEach(line -> productIds.add(line.getProductId()));
+        if (productIds.isEmpty()) {
+            return null;
+        }
+        Collection<Long> existing = namedJdbcTemplate.queryForList(SELECT_PRODUCT_IDS,
+                Map.of("ids", productIds), Long.class);
+        productIds.removeAll(existing);
+        if (productIds.isEmpty()) {
+            return null;
+        }
+
+        log.warn("Dropping deleted products {} from cart of session {}", productIds, pending.sessionId);
+        synchronized (pending.state) {
+            if (!pending.state.lines.keySet().removeAll(productIds)) {
+                return null;
+            }
+            pending.state.version++;
+        }
+        return pending(pending.sessionId);
+    }
+
+    private void write(List<Pending> batch) {
+        try {
+            writeTx.executeWithoutResult(status -> {
+                Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+                insertCarts(batch, now);
+
+                List<Pending> stored = batch.stream().filter(p -> p.cartId != null).toList();
+                if (!stored.isEmpty()) {
+                    jdbcTemplate.batchUpdate(TOUCH_CART, stored, stored.size(), (statement, p) -> {
+                        statement.setTimestamp(1, now);
+                        statement.setLong(2, p.cartId);
+                    });
+                    namedJdbcTemplate.update(DELETE_LINES,
+                            Map.of("cartIds", stored.stream().map(p -> p.cartId).toList()));
+                }
+
+                List<Object[]> lines = new ArrayList<>();
+                for (Pending p : stored) {
+                    for (Line line : p.lines) {
+                        lines.add(new Object[] {p.cartId, line.getProductId(), line.getQuantity(),
+                                line.getSelectedSize(), line.getSelectedColor(), line.getSpecialInstructions()});
+                    }
+                }
+                if (!lines.isEmpty()) {
+                    jdbcTemplate.batchUpdate(INSERT_LINE, lines);
+                }
+            });
+        } catch (RuntimeException e) {
+            // Ids handed out by the rolled-back insert do not exist
+            batch.forEach(p -> p.cartId = p.storedCartId);
+            throw e;
+        }
+
+        for (Pending p : batch) {
+            synchronized (p.state) {
+                p.state.cartId = p.cartId;
+                p.state.flushedVersion = Math.max(p.state.flushedVersion, p.version);
+            }
+        }
+    }
+
+    // Give carts that have lines but no row yet their row and id; empty new carts are never written
+    private void insertCarts(List<Pending> batch, Timestamp now) {
+        List<Pending> fresh = batch.stream().filter(p -> p.cartId == null && !p.lines.isEmpty()).toList();
+        if (fresh.isEmpty()) {
+            return;
+        }
+
+        // A row may already exist, e.g. created before this process started
+        Map<String, Long> existing = new HashMap<>();
+        namedJdbcTemplate.query(SELECT_CART_IDS,
+                Map.of("sessionIds", fresh.stream().map(p -> p.sessionId).toList()),
+                rs -> {
+                    existing.put(rs.getString(2), rs.getLong(1));
+                });
+        List<Pending> missing = new ArrayList<>();
+        for (Pending p : fresh) {
+            p.cartId = existing.get(p.sessionId);
+            if (p.cartId == null) {
+                missing.add(p);
+            }
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_CART,
+                    Statement.RETURN_GENERATED_KEYS)) {
+                for (Pending p : missing) {
+                    statement.setString(1, p.sessionId);
+                    statement.setTimestamp(2, now);
+                    statement.setTimestamp(3, now);
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+                int i = 0;
+                try (ResultSet keys = statement.getGeneratedKeys()) {
+                    while (keys.next() && i < missing.size()) {
+                        missing.get(i++).cartId = keys.getLong(1);
+                    }
+                }
+                if (i != missing.size()) {
+                    throw new SQLException("Expected " + missing.size() + " generated keys, got " + i);
+                }
+            }
+            return null;
+        });
+    }
+
+    private void evictIdle() {
+        long cutoff = System.currentTimeMillis() - idleMillis;
+        for (Map.Entry<String, CartState> entry : carts.entrySet()) {
+            CartState state = entry.getValue();
+            if (state.lastAccess >= cutoff) {
+                continue;
+            }
+            synchronized (state) {
+                if (state.lastAccess < cutoff && state.version == state.flushedVersion) {
+                    state.evicted = true;
+                    carts.remove(entry.getKey(), state);
+                }
+            }
+        }
+    }
+
+    /**
+     * One cart line. Immutable; replace it through {@link Contents#put} to change it.
+     */
+    @Getter
+    @Builder(toBuilder = true)
+    @AllArgsConstructor
+    public static final class Line {
+        private final Long productId;
+        private final int quantity;
+        private final String selectedSize;
+        private final String selectedColor;
+        private final String specialInstructions;
+    }
+
+    /**
+     * A cart as seen inside {@link #withCart}. Only valid for the duration of the call.
+     */
+    public static final class Contents {
+        private final CartState state;
+        private boolean changed;
+
+        private Contents(CartState state) {
+            this.state = state;
+        }
+
+        public String sessionId() {
+            return state.sessionId;
+        }
+
+        // Null until the cart has been written for the first time
+        public Long cartId() {
+            return state.cartId;
+        }
+
+        public List<Line> lines() {
+            return List.copyOf(state.lines.values());
+        }
+
+        public Line get(Long productId) {
+            return state.lines.get(productId);
+        }
+
+        public void put(Line line) {
+            state.lines.put(line.getProductId(), line);
+            changed = true;
+        }
+
+        public boolean remove(Long productId) {
+            boolean removed = state.lines.remove(productId) != null;
+            changed |= removed;
+            return removed;
+        }
+
+        public void clear() {
+            if (!state.lines.isEmpty()) {
+                state.lines.clear();
+                changed = true;
+            }
+        }
+    }
+
+    // Guarded by its own monitor
+    private static final class CartState {
+        private final String sessionId;
+        private Long cartId;
+        private final Map<Long, Line> lines = new LinkedHashMap<>();
+        private long version;
+        private long flushedVersion;
+        private volatile long lastAccess = System.currentTimeMillis();
+        private boolean evicted;
+
+        private CartState(String sessionId) {
+            this.sessionId = sessionId;
+        }
+    }
+
+    // A copy of one cart taken for a write
+    private static final class Pending {
+        private final String sessionId;
+        private final CartState state;
+        private final Long storedCartId;
+        private Long cartId;
+        private final List<Line> lines;
+        private final long version;
+
+        private Pending(String sessionId, CartState state, Long cartId, List<Line> lines, long version) {
+            this.sessionId = sessionId;
+            this.state = state;
+            this.storedCartId = cartId;
+            this.cartId = cartId;
+            this.lines = lines;
+            this.version = version;
+        }
+    }
+}
@@ -0,0 +1,800 @@
+package com.shoebank.nepalshop.service;
+
+import com.shoebank.nepalshop.dto.CursorPage;
+import com.shoebank.nepalshop.dto.FacetCountsDTO;
+import com.shoebank.nepalshop.dto.FacetValueDTO;
+import com.shoebank.nepalshop.dto.PageCursor;
+import com.shoebank.nepalshop.dto.PriceBucketDTO;
+import com.shoebank.nepalshop.dto.ProductDTO;
+import com.shoebank.nepalshop.dto.ProductFilter;
+import com.shoebank.nepalshop.event.CategoryChangedEvent;
+import com.shoebank.nepalshop.event.ProductChangedEvent;
+import com.shoebank.nepalshop.model.Product;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * In-memory index of every available product, used to answer storefront
+ * listings without going to the database.
+ *
+ * Each product occupies a slot; facet values map to bitsets of slots and
+ * price/createdAt/name keep slot arrays in sorted order, so a query is a few
+ * bitset intersections followed by a walk of one sorted array. Free-text
+ * search is delegated to {@link ProductSearchIndex}, which this class keeps in
+ * step with the catalog.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CatalogIndexService {
+
+    public static final String RELEVANCE = "relevance";
+    // Orders a keyset cursor can resume: stable per product, unlike relevance scores
+    public static final Set<String> CURSOR_SORTS = Set.of("createdAt", "price", "name");
+
+    private static final Comparator<Entry> BY_PRICE = Comparator
+            .comparing((Entry e) -> e.price)
+            .thenComparingLong(e -> e.id);
+
+    private static final Comparator<Entry> BY_CREATED_AT = Comparator
+            .comparing((Entry e) -> e.createdAt, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparingLong(e -> e.id);
+
+    private static final Comparator<Entry> BY_NAME = Comparator
+            .comparing((Entry e) -> e.nameKey)
+            .thenComparingLong(e -> e.id);
+
+    private final ProductSearchIndex searchIndex;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private Entry[] slots = new Entry[64];
+    private final Map<Long, Integer> slotById = new HashMap<>();
+    private final BitSet live = new BitSet();
+
+    private final Map<Long, BitSet> byCategory = new HashMap<>();
+    private final Map<String, BitSet> byBrand = new HashMap<>();
+    private final Map<String, BitSet> byGender = new HashMap<>();
+    private final Map<String, BitSet> byOccasion = new HashMap<>();
+    private final Map<String, BitSet> byTag = new HashMap<>();
+
+    private final SortedSlots byPrice = new SortedSlots(BY_PRICE);
+    private final SortedSlots byCreatedAt = new SortedSlots(BY_CREATED_AT);
+    private final SortedSlots byName = new SortedSlots(BY_NAME);
+
+    private volatile boolean ready = false;
+    // Bumped whenever a product enters, leaves or changes in the index (stock-only changes excluded)
+    private volatile long version = 0;
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public long version() {
+        return version;
+    }
+
+    public boolean supportsSort(String sortBy) {
+        return RELEVANCE.equals(sortBy) || sortedBy(sortBy) != null;
+    }
+
+    public Page<ProductDTO> query(ProductFilter filter, String sortBy, Sort.Direction direction, int page, int size) {
+        lock.readLock().lock();
+        try {
+            Map<Long, Double> scores = filter.getSearch() != null ? searchIndex.search(filter.getSearch()) : null;
+            BitSet matches = match(filter, scores);
+            int total = matches.cardinality();
+            long offset = (long) page * size;
+            boolean byRelevance = RELEVANCE.equals(sortBy) && scores != null;
+
+            List<ProductDTO> content = new ArrayList<>(Math.min(size, total));
+            if (offset < total && byRelevance) {
+                content = rankByScore(matches, scores, (int) offset, size);
+            } else if (offset < total) {
+                SortedSlots order = sortedBy(RELEVANCE.equals(sortBy) ? "createdAt" : sortBy);
+                long skipped = 0;
+                for (int i = 0; i < order.size && content.size() < size; i++) {
+                    int slot = direction == Sort.Direction.ASC ? order.slots[i] : order.slots[order.size - 1 - i];
+                    if (!matches.get(slot)) {
+                        continue;
+                    }
+                    if (skipped < offset) {
+                        skipped++;
+                    } else {
+                        content.add(slots[slot].dto);
+                    }
+                }
+            }
+
+            Sort sort = RELEVANCE.equals(sortBy) ? Sort.unsorted() : Sort.by(direction, sortBy);
+            return new PageImpl<>(content, PageRequest.of(page, size, sort), total);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Keyset variant of {@link #query}: returns the rows strictly after {@code after}
+     * (or the first rows when it is null) and a cursor for the next call, without
+     * counting the total. Only the sorted orders are offered; relevance scores move
+     * whenever the corpus changes, so a cursor keyed on one would skip or repeat rows.
+     */
+    public CursorPage<ProductDTO> queryAfter(ProductFilter filter, String sortBy, Sort.Direction direction,
+                                             PageCursor after, int size) {
+        SortedSlots order = sortedBy(sortBy);
+        if (order == null) {
+            throw new IllegalArgumentException("Cursor paging is not supported for sort: " + sortBy);
+        }
+        lock.readLock().lock();
+        try {
+            Map<Long, Double> scores = filter.getSearch() != null ? searchIndex.search(filter.getSearch()) : null;
+            BitSet matches = match(filter, scores);
+
+            // Fetch one extra row to learn whether another page exists
+            List<Entry> rows = new ArrayList<>(size + 1);
+            boolean ascending = direction == Sort.Direction.ASC;
+            int index = ascending ? 0 : order.size - 1;
+            if (after != null) {
+                int found = order.search(probe(sortBy, after));
+                if (found >= 0) {
+                    index = ascending ? found + 1 : found - 1;
+                } else {
+                    int insertion = -(found + 1);
+                    index = ascending ? insertion : insertion - 1;
+                }
+            }
+            for (; index >= 0 && index < order.size && rows.size() <= size; index += ascending ? 1 : -1) {
+                int slot = order.slots[index];
+                if (matches.get(slot)) {
+                    rows.add(slots[slot]);
+                }
+            }
+
+            boolean hasMore = rows.size() > size;
+            List<ProductDTO> content = new ArrayList<>(Math.min(size, rows.size()));
+            for (int i = 0; i < rows.size() && i < size; i++) {
+                content.add(rows.get(i).dto);
+            }
+            String nextCursor = null;
+            if (hasMore) {
+                Entry last = rows.get(size - 1);
+                nextCursor = new PageCursor(sortKey(sortBy, last), last.id).encode();
+            }
+
+            return CursorPage.<ProductDTO>builder()
+                    .content(content)
+                    .nextCursor(nextCursor)
+                    .hasMore(hasMore)
+                    .size(content.size())
+                    .build();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Replace the whole index, e.g. at startup.
+     */
+    public void rebuild(List<Product> products, Function<Product, ProductDTO> converter) {
+        List<Entry> entries = new ArrayList<>(products.size());
+        for (Product product : products) {
+            if (Boolean.TRUE.equals(product.getIsAvailable())) {
+                entries.add(new Entry(converter.apply(product), product.getCreatedAt()));
+            }
+        }
+
+        lock.writeLock().lock();
+        try {
+            slots = new Entry[Math.max(64, entries.size())];
+            slotById.clear();
+            live.clear();
+            byCategory.clear();
+            byBrand.clear();
+            byGender.clear();
+            byOccasion.clear();
+            byTag.clear();
+
+            for (int slot = 0; slot < entries.size(); slot++) {
+                Entry entry = entries.get(slot);
+                slots[slot] = entry;
+                slotById.put(entry.id, slot);
+                live.set(slot);
+                addPostings(entry, slot);
+            }
+            byPrice.rebuild();
+            byCreatedAt.rebuild();
+            byName.rebuild();
+            searchIndex.rebuild(entries.stream().map(entry -> entry.dto).toList());
+            version++;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Catalog index built with {} products", entries.size());
+    }
+
+    /**
+     * Re-read products written in bulk. Ids without a matching available product drop out.
+     * The sorted orders are rebuilt once instead of shifted per product.
+     */
+    public void reindex(Collection<Long> productIds, List<Product> products, Function<Product, ProductDTO> converter) {
+        List<Entry> entries = new ArrayList<>(products.size());
+        for (Product product : products) {
+            if (Boolean.TRUE.equals(product.getIsAvailable())) {
+                entries.add(new Entry(converter.apply(product), product.getCreatedAt()));
+            }
+        }
+
+        lock.writeLock().lock();
+        try {
+            for (Long productId : productIds) {
+                detach(productId);
+                searchIndex.remove(productId);
+            }
+            for (Entry entry : entries) {
+                attach(entry);
+                searchIndex.index(entry.dto);
+            }
+            byPrice.rebuild();
+            byCreatedAt.rebuild();
+            byName.rebuild();
+            version++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.debug("Catalog index reindexed {} products", productIds.size());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(CatalogVersionService.READ_MODEL_ORDER)
+    public void onProductChanged(ProductChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            switch (event.getType()) {
+                case SAVED:
+                    remove(event.getProductId());
+                    if (Boolean.TRUE.equals(event.getProduct().getIsAvailable())) {
+                        put(new Entry(event.getProduct(), event.getCreatedAt()));
+                        searchIndex.index(event.getProduct());
+                    } else {
+                        searchIndex.remove(event.getProductId());
+                    }
+                    version++;
+                    break;
+                case DELETED:
+                    remove(event.getProductId());
+                    searchIndex.remove(event.getProductId());
+                    version++;
+                    break;
+                case STOCK_CHANGED:
+                    Integer slot = slotById.get(event.getProductId());
+                    if (slot != null) {
+                        Entry entry = slots[slot];
+                        entry.dto = entry.dto.toBuilder().stock(event.getStock()).build();
+                    }
+                    break;
+                default:
+                    break;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(CatalogVersionService.READ_MODEL_ORDER)
+    public void onCategoryChanged(CategoryChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            BitSet members = byCategory.get(event.getCategoryId());
+            if (members == null || event.getName() == null) {
+                return;
+            }
+            for (int slot = members.nextSetBit(0); slot >= 0; slot = members.nextSetBit(slot + 1)) {
+                Entry entry = slots[slot];
+                entry.dto = entry.dto.toBuilder()
+                        .categoryName(event.getName())
+                        .categorySlug(event.getSlug())
+                        .build();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // The indexed product, or null when it is unknown or unavailable
+    public ProductDTO get(Long productId) {
+        lock.readLock().lock();
+        try {
+            Integer slot = slotById.get(productId);
+            return slot != null ? slots[slot].dto : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Every product currently in the index, in no particular order.
+     */
+    public List<ProductDTO> snapshot() {
+        lock.readLock().lock();
+        try {
+            List<ProductDTO> products = new ArrayList<>(live.cardinality());
+            for (int slot = live.nextSetBit(0); slot >= 0; slot = live.nextSetBit(slot + 1)) {
+                products.add(slots[slot].dto);
+            }
+            return products;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Count matching products per brand, gender, occasion, tag and price bucket.
+     *
+     * Each facet is counted with every filter applied except its own, so the
+     * sidebar can show how many products each alternative value would give.
+     */
+    public FacetCountsDTO facets(ProductFilter filter, List<BigDecimal> priceEdges) {
+        lock.readLock().lock();
+        try {
+            Map<Long, Double> scores = filter.getSearch() != null ? searchIndex.search(filter.getSearch()) : null;
+            BitSet base = scope(filter, scores);
+            BitSet brand = constraint(byBrand, filter.getBrand());
+            BitSet gender = constraint(byGender, filter.getGender());
+            BitSet occasion = constraint(byOccasion, filter.getOccasion());
+            BitSet tag = constraint(byTag, filter.getTag());
+            BitSet price = filter.getMinPrice() != null || filter.getMaxPrice() != null
+                    ? priceRange(filter.getMinPrice(), filter.getMaxPrice()) : null;
+
+            FacetTally brands = new FacetTally();
+            forEach(and(base, gender, occasion, tag, price), entry -> brands.add(entry.dto.getBrand()));
+            FacetTally genders = new FacetTally();
+            forEach(and(base, brand, occasion, tag, price), entry -> genders.add(entry.dto.getGender()));
+            FacetTally occasions = new FacetTally();
+            forEach(and(base, brand, gender, tag, price), entry -> occasions.add(entry.dto.getOccasion()));
+            FacetTally tags = new FacetTally();
+            forEach(and(base, brand, gender, occasion, price), entry -> {
+                if (entry.dto.getTags() != null) {
+                    List<String> seen = new ArrayList<>();
+                    for (String value : entry.dto.getTags()) {
+                        String tagKey = key(value);
+                        if (tagKey != null && !seen.contains(tagKey)) {
+                            seen.add(tagKey);
+                            tags.add(value);
+                        }
+                    }
+                }
+            });
+
+            long[] bucketCounts = new long[priceEdges.size() + 1];
+            forEach(and(base, brand, gender, occasion, tag), entry -> {
+                int bucket = 0;
+                while (bucket < priceEdges.size() && entry.price.compareTo(priceEdges.get(bucket)) >= 0) {
+                    bucket++;
+                }
+                bucketCounts[bucket]++;
+            });
+            List<PriceBucketDTO> priceBuckets = new ArrayList<>(bucketCounts.length);
+            for (int i = 0; i < bucketCounts.length; i++) {
+                priceBuckets.add(PriceBucketDTO.builder()
+                        .min(i == 0 ? BigDecimal.ZERO : priceEdges.get(i - 1))
+                        .max(i < priceEdges.size() ? priceEdges.get(i) : null)
+                        .count(bucketCounts[i])
+                        .build());
+            }
+
+            return FacetCountsDTO.builder()
+                    .total(and(base, brand, gender, occasion, tag, price).cardinality())
+                    .brands(brands.toList())
+                    .genders(genders.toList())
+                    .occasions(occasions.toList())
+                    .tags(tags.toList())
+                    .priceBuckets(priceBuckets)
+                    .build();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private BitSet match(ProductFilter filter, Map<Long, Double> scores) {
+        BitSet price = filter.getMinPrice() != null || filter.getMaxPrice() != null
+                ? priceRange(filter.getMinPrice(), filter.getMaxPrice()) : null;
+        return and(scope(filter, scores),
+                constraint(byBrand, filter.getBrand()),
+                constraint(byGender, filter.getGender()),
+                constraint(byOccasion, filter.getOccasion()),
+                constraint(byTag, filter.getTag()),
+                price);
+    }
+
+    // Live products narrowed by search hits and category, the filters that are never faceted
+    private BitSet scope(ProductFilter filter, Map<Long, Double> scores) {
+        BitSet result = (BitSet) live.clone();
+
+        if (scores != null) {
+            BitSet hits = new BitSet();
+            for (Long id : scores.keySet()) {
+                Integer slot = slotById.get(id);
+                if (slot != null) {
+                    hits.set(slot);
+                }
+            }
+            result.and(hits);
+        }
+        if (filter.getCategoryId() != null) {
+            intersect(result, byCategory.get(filter.getCategoryId()));
+        }
+        return result;
+    }
+
+    // Slots allowed by a facet filter, or null when the filter is not set
+    private static BitSet constraint(Map<String, BitSet> postings, String value) {
+        if (value == null) {
+            return null;
+        }
+        BitSet bits = postings.get(key(value));
+        return bits != null ? bits : new BitSet();
+    }
+
+    private static BitSet and(BitSet base, BitSet... constraints) {
+        BitSet result = (BitSet) base.clone();
+        for (BitSet constraint : constraints) {
+            if (constraint != null) {
+                result.and(constraint);
+            }
+        }
+        return result;
+    }
+
+    private void forEach(BitSet bits, Consumer<Entry> action) {
+        for (int slot = bits.nextSetBit(0); slot >= 0; slot = bits.nextSetBit(slot + 1)) {
+            action.accept(slots[slot]);
+        }
+    }
+
+    private List<Entry> rankedEntries(BitSet matches, Map<Long, Double> scores) {
+        List<Entry> ranked = new ArrayList<>(matches.cardinality());
+        for (int slot = matches.nextSetBit(0); slot >= 0; slot = matches.nextSetBit(slot + 1)) {
+            ranked.add(slots[slot]);
+        }
+        ranked.sort(Comparator.comparingDouble((Entry e) -> -scores.get(e.id)).thenComparingLong(e -> e.id));
+        return ranked;
+    }
+
+    private List<ProductDTO> rankByScore(BitSet matches, Map<Long, Double> scores, int offset, int size) {
+        List<Entry> ranked = rankedEntries(matches, scores);
+        List<ProductDTO> content = new ArrayList<>(size);
+        for (int i = offset; i < ranked.size() && content.size() < size; i++) {
+            content.add(ranked.get(i).dto);
+        }
+        return content;
+    }
+
+    private BitSet priceRange(BigDecimal min, BigDecimal max) {
+        int from = 0;
+        int to = byPrice.size;
+        if (min != null) {
+            from = firstPriceIndex(price -> price.compareTo(min) >= 0);
+        }
+        if (max != null) {
+            to = firstPriceIndex(price -> price.compareTo(max) > 0);
+        }
+
+        BitSet range = new BitSet();
+        for (int i = from; i < to; i++) {
+            range.set(byPrice.slots[i]);
+        }
+        return range;
+    }
+
+    // Binary search over the ascending price order for the first price matching the predicate
+    private int firstPriceIndex(Predicate<BigDecimal> predicate) {
+        int low = 0;
+        int high = byPrice.size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (predicate.test(slots[byPrice.slots[mid]].price)) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+
+    private static String sortKey(String sortBy, Entry entry) {
+        switch (sortBy) {
+            case "price":
+                return entry.price.toPlainString();
+            case "createdAt":
+                return entry.createdAt != null ? entry.createdAt.toString() : "";
+            default:
+                return entry.nameKey;
+        }
+    }
+
+    private static Entry probe(String sortBy, PageCursor cursor) {
+        try {
+            switch (sortBy) {
+                case "price":
+                    return new Entry(cursor.getId(), new BigDecimal(cursor.getKey()), null, null);
+                case "createdAt":
+                    LocalDateTime createdAt = cursor.getKey().isEmpty() ? null : LocalDateTime.parse(cursor.getKey());
+                    return new Entry(cursor.getId(), null, createdAt, null);
+                default:
+                    return new Entry(cursor.getId(), null, null, cursor.getKey());
+            }
+        } catch (NumberFormatException | DateTimeParseException e) {
+            throw new RuntimeException("Invalid cursor");
+        }
+    }
+
+    private SortedSlots sortedBy(String sortBy) {
+        if (sortBy == null) {
+            return null;
+        }
+        switch (sortBy) {
+            case "price":
+                return byPrice;
+            case "createdAt":
+                return byCreatedAt;
+            case "name":
+                return byName;
+            default:
+                return null;
+        }
+    }
+
+    private void put(Entry entry) {
+        int slot = attach(entry);
+        byPrice.insert(slot);
+        byCreatedAt.insert(slot);
+        byName.insert(slot);
+    }
+
+    private void remove(Long productId) {
+        Integer slot = slotById.get(productId);
+        if (slot == null) {
+            return;
+        }
+        byPrice.remove(slot);
+        byCreatedAt.remove(slot);
+        byName.remove(slot);
+        detach(productId);
+    }
+
+    // attach/detach maintain slots and postings only; callers keep the sorted orders in step
+    private int attach(Entry entry) {
+        int slot = live.nextClearBit(0);
+        if (slot >= slots.length) {
+            slots = Arrays.copyOf(slots, slots.length * 2);
+        }
+        slots[slot] = entry;
+        slotById.put(entry.id, slot);
+        live.set(slot);
+        addPostings(entry, slot);
+        return slot;
+    }
+
+    private void detach(Long productId) {
+        Integer slot = slotById.remove(productId);
+        if (slot == null) {
+            return;
+        }
+        Entry entry = slots[slot];
+        removePosting(byCategory, entry.categoryId, slot);
+        removePosting(byBrand, entry.brandKey, slot);
+        removePosting(byGender, entry.genderKey, slot);
+        removePosting(byOccasion, entry.occasionKey, slot);
+        for (String tag : entry.tagKeys) {
+            removePosting(byTag, tag, slot);
+        }
+        live.clear(slot);
+        slots[slot] = null;
+    }
+
+    private void addPostings(Entry entry, int slot) {
+        addPosting(byCategory, entry.categoryId, slot);
+        addPosting(byBrand, entry.brandKey, slot);
+        addPosting(byGender, entry.genderKey, slot);
+        addPosting(byOccasion, entry.occasionKey, slot);
+        for (String tag : entry.tagKeys) {
+            addPosting(byTag, tag, slot);
+        }
+    }
+
+    private static <K> void addPosting(Map<K, BitSet> postings, K key, int slot) {
+        if (key != null) {
+            postings.computeIfAbsent(key, k -> new BitSet()).set(slot);
+        }
+    }
+
+    private static <K> void removePosting(Map<K, BitSet> postings, K key, int slot) {
+        if (key == null) {
+            return;
+        }
+        BitSet bits = postings.get(key);
+        if (bits != null) {
+            bits.clear(slot);
+            if (bits.isEmpty()) {
+                postings.remove(key);
+            }
+        }
+    }
+
+    private static void intersect(BitSet result, BitSet bits) {
+        if (bits == null) {
+            result.clear();
+        } else {
+            result.and(bits);
+        }
+    }
+
+    private static String key(String value) {
+        if (value == null) {
+            return null;
+        }
+        String trimmed = value.trim().toLowerCase(Locale.ROOT);
+        return trimmed.isEmpty() ? null : trimmed;
+    }
+
+    /**
+     * Counts per case-insensitive value, labelled with the first spelling seen.
+     */
+    private static final class FacetTally {
+        private final Map<String, FacetValueDTO> values = new HashMap<>();
+
+        private void add(String value) {
+            String valueKey = key(value);
+            if (valueKey != null) {
+                FacetValueDTO facet = values.computeIfAbsent(valueKey, k -> new FacetValueDTO(value.trim(), 0));
+                facet.setCount(facet.getCount() + 1);
+            }
+        }
+
+        private List<FacetValueDTO> toList() {
+            List<FacetValueDTO> list = new ArrayList<>(values.values());
+            list.sort(Comparator.comparingLong(FacetValueDTO::getCount).reversed()
+                    .thenComparing(FacetValueDTO::getValue));
+            return list;
+        }
+    }
+
+    private static final class Entry {
+        private final long id;
+        private ProductDTO dto;
+        private final Long categoryId;
+        private final BigDecimal price;
+        private final LocalDateTime createdAt;
+        private final String nameKey;
+        private final String brandKey;
+        private final String genderKey;
+        private final String occasionKey;
+        private final List<String> tagKeys;
+
+        // Search key only, used to locate a cursor position in a sorted order
+        private Entry(long id, BigDecimal price, LocalDateTime createdAt, String nameKey) {
+            this.id = id;
+            this.price = price;
+            this.createdAt = createdAt;
+            this.nameKey = nameKey;
+            this.categoryId = null;
+            this.brandKey = null;
+            this.genderKey = null;
+            this.occasionKey = null;
+            this.tagKeys = List.of();
+        }
+
+        private Entry(ProductDTO dto, LocalDateTime createdAt) {
+            this.id = dto.getId();
+            this.dto = dto;
+            this.categoryId = dto.getCategoryId();
+            this.price = dto.getPrice();
+            this.createdAt = createdAt;
+            this.nameKey = dto.getName() != null ? dto.getName().toLowerCase(Locale.ROOT) : "";
+            this.brandKey = key(dto.getBrand());
+            this.genderKey = key(dto.getGender());
+            this.occasionKey = key(dto.getOccasion());
+            this.tagKeys = new ArrayList<>();
+            if (dto.getTags() != null) {
+                for (String tag : dto.getTags()) {
+                    String tagKey = key(tag);
+                    if (tagKey != null && !tagKeys.contains(tagKey)) {
+                        tagKeys.add(tagKey);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Slots kept in ascending order of a comparator, updated by binary-search insert/remove.
+     */
+    private final class SortedSlots {
+        private final Comparator<Entry> order;
+        private int[] slots = new int[64];
+        private int size;
+
+        private SortedSlots(Comparator<Entry> order) {
+            this.order = order;
+        }
+
+        private void insert(int slot) {
+            int index = -(indexOf(slot) + 1);
+            if (size == slots.length) {
+                slots = Arrays.copyOf(slots, size * 2);
+            }
+            System.arraycopy(slots, index, slots, index + 1, size - index);
+            slots[index] = slot;
+            size++;
+        }
+
+        private void remove(int slot) {
+            int index = indexOf(slot);
+            if (index >= 0) {
+                System.arraycopy(slots, index + 1, slots, index, size - index - 1);
+                size--;
+            }
+        }
+
+        private void rebuild() {
+            size = live.cardinality();
+            slots = live.stream()
+                    .boxed()
+                    .sorted((a, b) -> order.compare(CatalogIndexService.this.slots[a], CatalogIndexService.this.slots[b]))
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+            if (slots.length == 0) {
+                slots = new int[64];
+            }
+        }
+
+        private int indexOf(int slot) {
+            return search(CatalogIndexService.this.slots[slot]);
+        }
+
+        // Entries are unique under the comparator (ties broken by id), so a hit is an exact match
+        private int search(Entry target) {
+            int low = 0;
+            int high = size - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int cmp = order.compare(CatalogIndexService.this.slots[this.slots[mid]], target);
+                if (cmp < 0) {
+                    low = mid + 1;
+                } else if (cmp > 0) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -(low + 1);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.shoebank.nepalshop.service;
+
+import com.shoebank.nepalshop.event.CategoryChangedEvent;
+import com.shoebank.nepalshop.event.ProductChangedEvent;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Version stamp for everything the storefront reads from the catalog.
+ *
+ * It moves after any committed product or category change, stock included,
+ * and is used to build validators for HTTP conditional GETs. The ETag also
+ * carries a per-process id, so a restart or another replica never answers 304
+ * for a version it did not serve.
+ */
+@Service
+public class CatalogVersionService {
+
+    /**
+     * Listener order for in-memory read models (index, caches, counts). They run
+     * before the version moves, so a reader that sees the new version never
+     * rebuilds anything from state that has not caught up yet.
+     */
+    public static final int READ_MODEL_ORDER = 0;
+
+    private final String instanceId = UUID.randomUUID().toString().substring(0, 8);
+    private final AtomicLong version = new AtomicLong(1);
+    // HTTP dates have second precision, so keep whole seconds
+    private volatile long lastModified = currentSecond();
+
+    public long version() {
+        return version.get();
+    }
+
+    public String etag() {
+        return etag(version.get());
+    }
+
+    public String etag(long version) {
+        return "\"" + instanceId + "-" + version + "\"";
+    }
+
+    public long lastModified() {
+        return lastModified;
+    }
+
+    /**
+     * Evaluate If-None-Match / If-Modified-Since against the current catalog version.
+     * Sets ETag and Last-Modified on the response; when this returns true the
+     * response is already a 304 and the handler should return null.
+     */
+    public boolean checkNotModified(WebRequest request) {
+        return request.checkNotModified(etag(), lastModified());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void onProductChanged(ProductChangedEvent event) {
+        bump();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void onCategoryChanged(CategoryChangedEvent event) {
+        bump();
+    }
+
+    private void bump() {
+        version.incrementAndGet();
+        lastModified = currentSecond();
+    }
+
+    private static long currentSecond() {
+        return System.currentTimeMillis() / 1000 * 1000;
+    }
+}
@@ -0,0 +1,97 @@
+package com.shoebank.nepalshop.service;
+
+import com.shoebank.nepalshop.event.ProductChangedEvent;
+import com.shoebank.nepalshop.repository.ProductRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Number of products per category, kept in memory so category listings run no COUNT queries.
+ *
+ * Loaded on first use with one query. Each product's category is remembered,
+ * so saves (including moves between categories), deletes and bulk writes adjust
+ * the counts in place. Applying a change the load already saw is a no-op.
+ */
+@Service
+@RequiredArgsConstructor
+public class CategoryCountService {
+
+    private static final int BULK_CHUNK = 1000;
+
+    private final ProductRepository productRepository;
+
+    // Guarded by this
+    private final Map<Long, Long> categoryByProduct = new HashMap<>();
+    private final Map<Long, Long> counts = new HashMap<>();
+    private boolean loaded = false;
+
+    public synchronized Map<Long, Long> counts() {
+        if (!loaded) {
+            for (Object[] row : productRepository.findAllCategoryIds()) {
+                move((Long) row[0], (Long) row[1]);
+            }
+            loaded = true;
+        }
+        return Map.copyOf(counts);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true, condition = "#event.type.name() != 'BULK'")
+    @Order(CatalogVersionService.READ_MODEL_ORDER)
+    public synchronized void onProductChanged(ProductChangedEvent event) {
+        if (!loaded) {
+            return;
+        }
+        switch (event.getType()) {
+            case SAVED:
+                move(event.getProductId(), event.getProduct().getCategoryId());
+                break;
+            case DELETED:
+                move(event.getProductId(), null);
+                break;
+            default:
+                break;
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true, condition = "#event.type.name() == 'BULK'")
+    @Order(CatalogVersionService.READ_MODEL_ORDER)
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    public void onBulkChange(ProductChangedEvent event) {
+        List<Long> ids = event.getProductIds();
+        List<Object[]> rows = new ArrayList<>(ids.size());
+        for (int from = 0; from < ids.size(); from += BULK_CHUNK) {
+            rows.addAll(productRepository.findCategoryIdsByIdIn(
+                    ids.subList(from, Math.min(ids.size(), from + BULK_CHUNK))));
+        }
+        synchronized (this) {
+            if (!loaded) {
+                return;
+            }
+            for (Object[] row : rows) {
+                move((Long) row[0], (Long) row[1]);
+            }
+        }
+    }
+
+    // Record that a product now sits in categoryId (null: gone)
+    private void move(Long productId, Long categoryId) {
+        Long previous = categoryId != null
+                ? categoryByProduct.put(productId, categoryId)
+                : categoryByProduct.remove(productId);
+        if (previous != null && !previous.equals(categoryId)) {
+            counts.merge(previous, -1L, Long::sum);
+        }
+        if (categoryId != null && !categoryId.equals(previous)) {
+            counts.merge(categoryId, 1L, Long::sum);
+        }
+    }
+}
@@ -1,14 +1,19 @@
 package com.shoebank.nepalshop.service;
 
 import com.shoebank.nepalshop.dto.CategoryDTO;
+import com.shoebank.nepalshop.event.CategoryChangedEvent;
 import com.shoebank.nepalshop.model.Category;
 import com.shoebank.nepalshop.repository.CategoryRepository;
 import com.shoebank.nepalshop.repository.ProductRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
 
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
@@ -17,25 +22,54 @@ public class CategoryService {
     
     private final CategoryRepository categoryRepository;
     private final ProductRepository productRepository;
+    private final CategoryCountService categoryCountService;
+    private final ApplicationEventPublisher eventPublisher;
+    
+    // Categories change rarely; both lists are kept (without counts) until the next category write
+    private volatile List<CategoryDTO> activeCategories;
+    private volatile List<CategoryDTO> allCategories;
+    // Bumped on every category write so a list loaded before it is not kept afterwards
+    private long generation;
     
     public List<CategoryDTO> getAllActiveCategories() {
-        return categoryRepository.findByIsActiveTrueOrderByDisplayOrderAsc()
-                .stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        List<CategoryDTO> categories = activeCategories;
+        if (categories == null) {
+            long loadedAt = currentGeneration();
+            categories = categoryRepository.findByIsActiveTrueOrderByDisplayOrderAsc()
+                    .stream()
+                    .map(this::toDTO)
+                    .collect(Collectors.toList());
+            synchronized (this) {
+                if (generation == loadedAt) {
+                    activeCategories = categories;
+                }
+            }
+        }
+        return withCounts(categories);
     }
     
     public List<CategoryDTO> getAllCategories() {
-        return categoryRepository.findAll()
-                .stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        List<CategoryDTO> categories = allCategories;
+        if (categories == null) {
+            long loadedAt = currentGeneration();
+            categories = categoryRepository.findAll()
+                    .stream()
+                    .map(this::toDTO)
+                    .collect(Collectors.toList());
+            synchronized (this) {
+                if (generation == loadedAt) {
+                    allCategories = categories;
+                }
+            }
+        }
+        return withCounts(categories);
     }
     
     public CategoryDTO getCategoryBySlug(String slug) {
-        Category category = categoryRepository.findBySlug(slug)
+        return getAllCategories().stream()
+                .filter(category -> category.getSlug().equals(slug))
+                .findFirst()
                 .orElseThrow(() -> new RuntimeException("Category not found"));
-        return convertToDTO(category);
     }
     
     public CategoryDTO getCategoryById(Long id) {
@@ -59,7 +93,9 @@ public class CategoryService {
                 .isActive(dto.getIsActive() != null ? dto.getIsActive() : true)
                 .build();
         
-        return convertToDTO(categoryRepository.save(category));
+        Category saved = categoryRepository.save(category);
+        eventPublisher.publishEvent(new CategoryChangedEvent(saved.getId(), saved.getName(), saved.getSlug()));
+        return convertToDTO(saved);
     }
     
     @Transactional
@@ -73,7 +109,9 @@ public class CategoryService {
         category.setDisplayOrder(dto.getDisplayOrder());
         category.setIsActive(dto.getIsActive());
         
-        return convertToDTO(categoryRepository.save(category));
+        Category saved = categoryRepository.save(category);
+        eventPublisher.publishEvent(new CategoryChangedEvent(saved.getId(), saved.getName(), saved.getSlug()));
+        return convertToDTO(saved);
     }
     
     @Transactional
@@ -86,9 +124,37 @@ public class CategoryService {
             throw new RuntimeException("Cannot delete category with products. Remove products first.");
         }
         categoryRepository.deleteById(id);
+        eventPublisher.publishEvent(new CategoryChangedEvent(id, null, null));
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(CatalogVersionService.READ_MODEL_ORDER)
+    public synchronized void onCategoryChanged(CategoryChangedEvent event) {
+        generation++;
+        activeCategories = null;
+        allCategories = null;
+    }
+    
+    private synchronized long currentGeneration() {
+        return generation;
+    }
+    
+    private List<CategoryDTO> withCounts(List<CategoryDTO> categories) {
+        Map<Long, Long> counts = categoryCountService.counts();
+        return categories.stream()
+                .map(category -> category.toBuilder()
+                        .productCount(counts.getOrDefault(category.getId(), 0L))
+                        .build())
+                .collect(Collectors.toList());
     }
     
     private CategoryDTO convertToDTO(Category category) {
+        CategoryDTO dto = toDTO(category);
+        dto.setProductCount(categoryCountService.counts().getOrDefault(category.getId(), 0L));
+        return dto;
+    }
+    
+    private CategoryDTO toDTO(Category category) {
         return CategoryDTO.builder()
                 .id(category.getId())
                 .name(category.getName())
@@ -97,7 +163,6 @@ public class CategoryService {
                 .image(category.getImage())
                 .displayOrder(category.getDisplayOrder())
                 .isActive(category.getIsActive())
-                .productCount(productRepository.countByCategoryId(category.getId()))
                 .build();
     }
 }
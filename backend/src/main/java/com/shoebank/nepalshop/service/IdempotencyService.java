@@ -0,0 +1,272 @@
+package com.shoebank.nepalshop.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shoebank.nepalshop.dto.OrderDTO;
+import com.shoebank.nepalshop.exception.IdempotencyException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+/**
+ * Idempotency-Key support for order creation.
+ *
+ * The first request with a key claims it with a row in idempotency_keys and
+ * runs; checkout writes the resulting order into that row in the order's own
+ * transaction, so an order never commits without its stored response.
+ * Duplicates on this instance wait on the first request's future; duplicates
+ * on other instances poll the row. Later retries get the stored order back
+ * without running checkout again, from memory for memory-minutes and from the
+ * table until ttl-hours. A key reused with a different request is rejected
+ * with 422; a duplicate that outwaits the first request gets 409 and should
+ * retry with the same key.
+ *
+ * A failed request gives its key up, so the shopper can fix the problem and
+ * retry. A claim with no response after in-flight-seconds belongs to a
+ * request that died before committing, and can be taken over. The response
+ * and the release are fenced by the claim's created_at, so a request whose
+ * claim was taken over can neither store its order nor drop the new claim;
+ * its order transaction rolls back instead.
+ */
+@Service
+@Slf4j
+public class IdempotencyService {
+
+    private static final int MAX_KEY_LENGTH = 128;
+    private static final long POLL_MILLIS = 100;
+
+    private static final String INSERT_CLAIM =
+            "INSERT INTO idempotency_keys (idem_key, request_hash, created_at) VALUES (?, ?, ?)";
+    private static final String SELECT_KEY =
+            "SELECT request_hash, response, created_at FROM idempotency_keys WHERE idem_key = ?";
+    private static final String TAKE_OVER =
+            "UPDATE idempotency_keys SET request_hash = ?, created_at = ? "
+                    + "WHERE idem_key = ? AND response IS NULL AND created_at = ?";
+    private static final String DELETE_EXPIRED_KEY =
+            "DELETE FROM idempotency_keys WHERE idem_key = ? AND created_at = ?";
+    private static final String RELEASE_CLAIM =
+            "DELETE FROM idempotency_keys WHERE idem_key = ? AND response IS NULL AND created_at = ?";
+    private static final String RECORD_RESPONSE =
+            "UPDATE idempotency_keys SET response = ? "
+                    + "WHERE idem_key = ? AND response IS NULL AND created_at = ?";
+    private static final String DELETE_EXPIRED =
+            "DELETE FROM idempotency_keys WHERE created_at < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final long memoryMillis;
+    private final long ttlMillis;
+    private final long inFlightMillis;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    public IdempotencyService(JdbcTemplate jdbcTemplate,
+                              ObjectMapper objectMapper,
+                              @Value("${app.idempotency.memory-minutes:15}") long memoryMinutes,
+                              @Value("${app.idempotency.ttl-hours:24}") long ttlHours,
+                              @Value("${app.idempotency.in-flight-seconds:60}") long inFlightSeconds) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.memoryMillis = memoryMinutes * 60_000;
+        this.ttlMillis = ttlHours * 3_600_000;
+        this.inFlightMillis = inFlightSeconds * 1000;
+    }
+
+    /**
+     * Run {@code action} once per key. Without a key it simply runs, with a
+     * null claim. {@code action} must pass its claim to {@link #recordResponse}
+     * in its transaction.
+     */
+    public OrderDTO execute(String key, Object request, Function<Claim, OrderDTO> action) {
+        if (key == null || key.isBlank()) {
+            return action.apply(null);
+        }
+        if (key.length() > MAX_KEY_LENGTH) {
+            throw new RuntimeException("Idempotency-Key must be at most " + MAX_KEY_LENGTH + " characters");
+        }
+        String hash = fingerprint(request);
+
+        while (true) {
+            Entry mine = new Entry(hash);
+            Entry existing = entries.putIfAbsent(key, mine);
+            if (existing != null) {
+                if (existing.isExpired(memoryMillis)) {
+                    entries.remove(key, existing);
+                    continue;
+                }
+                if (!existing.hash.equals(hash)) {
+                    throw IdempotencyException.mismatch();
+                }
+                return await(existing);
+            }
+
+            Claim claim = null;
+            try {
+                Object found = claimOrFetch(key, hash);
+                claim = found instanceof Claim own ? own : null;
+                OrderDTO order = claim != null ? action.apply(claim) : (OrderDTO) found;
+                mine.complete(order);
+                return order;
+            } catch (RuntimeException e) {
+                entries.remove(key, mine);
+                mine.result.completeExceptionally(e);
+                if (claim != null) {
+                    jdbcTemplate.update(RELEASE_CLAIM, key, claim.createdAt);
+                }
+                throw e;
+            }
+        }
+    }
+
+    // Called by checkout inside the order transaction; throws if the claim was taken over
+    public void recordResponse(Claim claim, OrderDTO order) {
+        if (claim == null) {
+            return;
+        }
+        String response;
+        try {
+            response = objectMapper.writeValueAsString(order);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Failed to serialize order for idempotent replay", e);
+        }
+        if (jdbcTemplate.update(RECORD_RESPONSE, response, claim.key, claim.createdAt) == 0) {
+            throw IdempotencyException.inProgress();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.idempotency.cleanup-ms:600000}")
+    public void expire() {
+        entries.values().removeIf(entry -> entry.isExpired(memoryMillis));
+        int deleted = jdbcTemplate.update(DELETE_EXPIRED, new Timestamp(System.currentTimeMillis() - ttlMillis));
+        if (deleted > 0) {
+            log.debug("Deleted {} expired idempotency keys", deleted);
+        }
+    }
+
+    // The stored order when the key already has one, otherwise this request's claim on it
+    private Object claimOrFetch(String key, String hash) {
+        long deadline = System.currentTimeMillis() + inFlightMillis;
+        while (true) {
+            Timestamp now = new Timestamp(System.currentTimeMillis());
+            try {
+                jdbcTemplate.update(INSERT_CLAIM, key, hash, now);
+                return new Claim(key, now);
+            } catch (DuplicateKeyException e) {
+                // Someone has the key: finished, expired, or still running
+            }
+
+            List<Object[]> rows = jdbcTemplate.query(SELECT_KEY, (rs, rowNum) -> new Object[] {
+                    rs.getString(1), rs.getString(2), rs.getTimestamp(3)}, key);
+            if (rows.isEmpty()) {
+                continue;
+            }
+            String storedHash = (String) rows.get(0)[0];
+            String response = (String) rows.get(0)[1];
+            Timestamp createdAt = (Timestamp) rows.get(0)[2];
+
+            if (createdAt.getTime() < now.getTime() - ttlMillis) {
+                jdbcTemplate.update(DELETE_EXPIRED_KEY, key, createdAt);
+                continue;
+            }
+            if (!storedHash.equals(hash)) {
+                throw IdempotencyException.mismatch();
+            }
+            if (response != null) {
+                return read(response);
+            }
+            if (createdAt.getTime() < now.getTime() - inFlightMillis
+                    && jdbcTemplate.update(TAKE_OVER, hash, now, key, createdAt) == 1) {
+                return new Claim(key, now);
+            }
+            if (System.currentTimeMillis() > deadline) {
+                throw IdempotencyException.inProgress();
+            }
+            try {
+                Thread.sleep(POLL_MILLIS);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                throw IdempotencyException.inProgress();
+            }
+        }
+    }
+
+    private OrderDTO await(Entry entry) {
+        try {
+            return entry.result.get(inFlightMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            // The same request failed; answer the duplicate the same way
+            throw e.getCause() instanceof RuntimeException runtime ? runtime : new RuntimeException(e.getCause());
+        } catch (TimeoutException e) {
+            throw IdempotencyException.inProgress();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw IdempotencyException.inProgress();
+        }
+    }
+
+    private String fingerprint(Object request) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(request));
+            return HexFormat.of().formatHex(digest);
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private OrderDTO read(String response) {
+        try {
+            return objectMapper.readValue(response, OrderDTO.class);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Stored order for this Idempotency-Key could not be read", e);
+        }
+    }
+
+    /**
+     * A request's hold on its key, identified by the created_at it wrote.
+     */
+    public static final class Claim {
+        private final String key;
+        private final Timestamp createdAt;
+
+        private Claim(String key, Timestamp createdAt) {
+            this.key = key;
+            this.createdAt = createdAt;
+        }
+    }
+
+    private static final class Entry {
+        private final String hash;
+        private final CompletableFuture<OrderDTO> result = new CompletableFuture<>();
+        private volatile long completedAt;
+
+        private Entry(String hash) {
+            this.hash = hash;
+        }
+
+        private void complete(OrderDTO order) {
+            completedAt = System.currentTimeMillis();
+            result.complete(order);
+        }
+
+        // Only finished entries expire; the table keeps answering after that
+        private boolean isExpired(long memoryMillis) {
+            return completedAt != 0 && completedAt < System.currentTimeMillis() - memoryMillis;
+        }
+    }
+}
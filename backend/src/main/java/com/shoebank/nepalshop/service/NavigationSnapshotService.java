@@ -0,0 +1,247 @@
+package com.shoebank.nepalshop.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shoebank.nepalshop.dto.ApiResponse;
+import com.shoebank.nepalshop.dto.CategoryDTO;
+import com.shoebank.nepalshop.dto.ProductDTO;
+import com.shoebank.nepalshop.dto.StorefrontHomeDTO;
+import com.shoebank.nepalshop.event.CategoryChangedEvent;
+import com.shoebank.nepalshop.event.ProductChangedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.context.request.WebRequest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Ready-to-send response bodies for the storefront navigation: the active
+ * category list, the featured products and the home page bundle that
+ * combines them with the newest arrivals.
+ *
+ * All are serialized together, kept as JSON bytes plus a gzipped copy, and
+ * published as one immutable snapshot that readers get with a single volatile
+ * read. Category and product changes rebuild it in the background and swap it
+ * in; stock-only changes do not. Each snapshot carries the validators of the
+ * catalog version it was built from, so a body is never served under an ETag
+ * that is newer than it.
+ */
+@Service
+@Slf4j
+public class NavigationSnapshotService {
+
+    private final CategoryService categoryService;
+    private final ProductService productService;
+    private final CatalogVersionService catalogVersionService;
+    private final ObjectMapper objectMapper;
+    private final Executor executor;
+    private final int newArrivals;
+
+    private volatile Snapshot snapshot;
+
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    private final AtomicBoolean rerun = new AtomicBoolean();
+
+    public NavigationSnapshotService(CategoryService categoryService,
+                                     ProductService productService,
+                                     CatalogVersionService catalogVersionService,
+                                     ObjectMapper objectMapper,
+                                     @Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+                                     Executor executor,
+                                     @Value("${app.storefront.new-arrivals:8}") int newArrivals) {
+        this.categoryService = categoryService;
+        this.productService = productService;
+        this.catalogVersionService = catalogVersionService;
+        this.objectMapper = objectMapper;
+        this.executor = executor;
+        this.newArrivals = newArrivals;
+    }
+
+    public Payload categories() {
+        return current().categories;
+    }
+
+    public Payload featuredProducts() {
+        return current().featured;
+    }
+
+    public Payload home() {
+        return current().home;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        requestRebuild();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true, condition = "#event.type.name() != 'STOCK_CHANGED'")
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void onProductChanged(ProductChangedEvent event) {
+        requestRebuild();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void onCategoryChanged(CategoryChangedEvent event) {
+        requestRebuild();
+    }
+
+    private void requestRebuild() {
+        executor.execute(this::rebuild);
+    }
+
+    private void rebuild() {
+        // One build at a time; changes that arrive meanwhile make it go round again
+        rerun.set(true);
+        while (rerun.get() && rebuilding.compareAndSet(false, true)) {
+            try {
+                rerun.set(false);
+                publish(build());
+            } catch (RuntimeException e) {
+                log.error("Navigation snapshot rebuild failed", e);
+                return;
+            } finally {
+                rebuilding.set(false);
+            }
+        }
+    }
+
+    private Snapshot current() {
+        Snapshot current = snapshot;
+        if (current != null) {
+            return current;
+        }
+        // Only until the first build has been published
+        synchronized (this) {
+            if (snapshot == null) {
+                snapshot = build();
+            }
+            return snapshot;
+        }
+    }
+
+    private synchronized void publish(Snapshot next) {
+        Snapshot current = snapshot;
+        if (current == null || next.version >= current.version) {
+            snapshot = next;
+            log.debug("Navigation snapshot rebuilt for catalog version {}", next.version);
+        }
+    }
+
+    private Snapshot build() {
+        // Read the version first: the caches are updated before it moves,
+        // so the data below is never older than the version it is stamped with
+        long version = catalogVersionService.version();
+        String etag = catalogVersionService.etag(version);
+        long lastModified = catalogVersionService.lastModified();
+
+        // Each part is usually a cache hit; the ones that are not load side by side
+        CompletableFuture<List<CategoryDTO>> categories =
+                CompletableFuture.supplyAsync(categoryService::getAllActiveCategories, executor);
+        CompletableFuture<List<ProductDTO>> featured =
+                CompletableFuture.supplyAsync(productService::getFeaturedProducts, executor);
+        CompletableFuture<List<ProductDTO>> arrivals =
+                CompletableFuture.supplyAsync(() -> productService.getNewArrivals(newArrivals), executor);
+
+        StorefrontHomeDTO home = StorefrontHomeDTO.builder()
+                .version(version)
+                .categories(categories.join())
+                .featuredProducts(featured.join())
+                .newArrivals(arrivals.join())
+                .build();
+        return new Snapshot(version,
+                payload(ApiResponse.success(home.getCategories()), etag, lastModified),
+                payload(ApiResponse.success(home.getFeaturedProducts()), etag, lastModified),
+                payload(ApiResponse.success(home), etag, lastModified));
+    }
+
+    private Payload payload(Object body, String etag, long lastModified) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(body);
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(json.length / 4 + 64);
+            try (GZIPOutputStream gzip = new GZIPOutputStream(buffer)) {
+                gzip.write(json);
+            }
+            byte[] gzipped = buffer.toByteArray();
+            // Tiny bodies can grow when compressed; only keep the gzip copy when it pays
+            return new Payload(json, gzipped.length < json.length ? gzipped : null, etag, lastModified);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Failed to serialize navigation snapshot", e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * One serialized response body. The byte arrays are shared between
+     * requests and must never be modified.
+     */
+    public static final class Payload {
+        private final byte[] json;
+        private final byte[] gzip;
+        private final String etag;
+        private final long lastModified;
+
+        private Payload(byte[] json, byte[] gzip, String etag, long lastModified) {
+            this.json = json;
+            this.gzip = gzip;
+            this.etag = etag;
+            this.lastModified = lastModified;
+        }
+
+        /**
+         * Evaluate If-None-Match / If-Modified-Since against this body. Sets ETag and
+         * Last-Modified; when this returns true the response is already a 304.
+         */
+        public boolean checkNotModified(WebRequest request) {
+            return request.checkNotModified(etag, lastModified);
+        }
+
+        public ResponseEntity<byte[]> toResponse(WebRequest request) {
+            String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+            boolean gzipped = gzip != null && acceptEncoding != null && acceptEncoding.contains("gzip");
+
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                    .cacheControl(CacheControl.noCache())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .varyBy(HttpHeaders.ACCEPT_ENCODING);
+            if (gzipped) {
+                response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+            }
+            return response.body(gzipped ? gzip : json);
+        }
+    }
+
+    private static final class Snapshot {
+        private final long version;
+        private final Payload categories;
+        private final Payload featured;
+        private final Payload home;
+
+        private Snapshot(long version, Payload categories, Payload featured, Payload home) {
+            this.version = version;
+            this.categories = categories;
+            this.featured = featured;
+            this.home = home;
+        }
+    }
+}
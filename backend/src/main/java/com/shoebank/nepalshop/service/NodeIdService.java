@@ -0,0 +1,159 @@
+package com.shoebank.nepalshop.service;
+
+import com.shoebank.nepalshop.model.NodeScopedIdGenerator;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * A node id for this backend instance, unique among the running replicas.
+ *
+ * Set app.node.id to pin one. Otherwise the instance leases the lowest free
+ * id from order_number_nodes: a row per id with its owner and last heartbeat.
+ * Ids whose owner stopped heart-beating for lease-minutes are free again, so
+ * restarted or scaled-down replicas give theirs back without any cleanup.
+ * For the same reason a leased id is only handed out while its last
+ * successful heartbeat is younger than the lease; past that it is renewed
+ * first, or replaced if another replica took it, and ids are refused while
+ * the database can not be reached.
+ */
+@Service
+@Slf4j
+public class NodeIdService {
+
+    // Order numbers and entity ids give the node id 10 bits
+    public static final int MAX_NODES = 1024;
+
+    private static final String SELECT_LIVE =
+            "SELECT node_id FROM order_number_nodes WHERE heartbeat_at >= ?";
+    private static final String INSERT_NODE =
+            "INSERT INTO order_number_nodes (node_id, owner, heartbeat_at) VALUES (?, ?, ?)";
+    // Only takes over a lease that has gone stale
+    private static final String TAKE_OVER =
+            "UPDATE order_number_nodes SET owner = ?, heartbeat_at = ? WHERE node_id = ? AND heartbeat_at < ?";
+    private static final String HEARTBEAT =
+            "UPDATE order_number_nodes SET heartbeat_at = ? WHERE node_id = ? AND owner = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    // Own transactions: a lease must not depend on the order that asked for it
+    private final TransactionTemplate leaseTx;
+    private final long leaseMillis;
+    private final boolean pinned;
+    private final String owner = UUID.randomUUID().toString();
+
+    // -1 until leased
+    private volatile int nodeId;
+    // When the lease was last written, by this instance's clock
+    private volatile long lastHeartbeat;
+
+    public NodeIdService(JdbcTemplate jdbcTemplate,
+                         PlatformTransactionManager transactionManager,
+                         @Value("${app.node.id:-1}") int configuredId,
+                         @Value("${app.node.lease-minutes:5}") long leaseMinutes) {
+        if (configuredId >= MAX_NODES) {
+            throw new IllegalArgumentException("app.node.id must be below " + MAX_NODES);
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.leaseTx = new TransactionTemplate(transactionManager);
+        this.leaseTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.leaseMillis = leaseMinutes * 60_000;
+        this.nodeId = configuredId;
+        this.pinned = configuredId >= 0;
+    }
+
+    public int nodeId() {
+        int id = nodeId;
+        if (id < 0) {
+            return lease();
+        }
+        if (pinned || System.currentTimeMillis() - lastHeartbeat < leaseMillis) {
+            return id;
+        }
+        // Heartbeats have not landed for a whole lease, so another replica may hold this id by now
+        return renew();
+    }
+
+    @PostConstruct
+    public void registerForEntityIds() {
+        NodeScopedIdGenerator.useNodeSource(this::nodeId);
+    }
+
+    // Lease up front so the first order does not wait for it
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        nodeId();
+    }
+
+    @Scheduled(fixedDelayString = "${app.node.heartbeat-ms:60000}")
+    public void heartbeat() {
+        if (pinned || nodeId < 0) {
+            return;
+        }
+        renew();
+    }
+
+    // Extend the lease; returns the id, which is a fresh one if the old lease was lost
+    private synchronized int renew() {
+        int id = nodeId;
+        if (id < 0) {
+            return lease();
+        }
+        Timestamp now = now();
+        if (leaseTx.execute(status -> jdbcTemplate.update(HEARTBEAT, now, id, owner)) == 0) {
+            // Someone took it over after missed heartbeats; move to a fresh id
+            log.warn("Lease on node id {} was lost, leasing a new one", id);
+            nodeId = -1;
+            return lease();
+        }
+        lastHeartbeat = now.getTime();
+        return id;
+    }
+
+    private synchronized int lease() {
+        if (nodeId >= 0) {
+            return nodeId;
+        }
+        Timestamp now = now();
+        Timestamp staleBefore = new Timestamp(now.getTime() - leaseMillis);
+        Set<Integer> live = new HashSet<>(leaseTx.execute(status ->
+                jdbcTemplate.queryForList(SELECT_LIVE, Integer.class, staleBefore)));
+        for (int id = 0; id < MAX_NODES; id++) {
+            if (live.contains(id) || !claim(id, now, staleBefore)) {
+                continue;
+            }
+            lastHeartbeat = now.getTime();
+            nodeId = id;
+            log.info("Leased node id {}", id);
+            return id;
+        }
+        throw new IllegalStateException("No free node id among " + MAX_NODES);
+    }
+
+    private boolean claim(int id, Timestamp now, Timestamp staleBefore) {
+        try {
+            leaseTx.executeWithoutResult(status -> jdbcTemplate.update(INSERT_NODE, id, owner, now));
+            return true;
+        } catch (DuplicateKeyException e) {
+            // Stale row, or another replica got here first
+            return leaseTx.execute(status -> jdbcTemplate.update(TAKE_OVER, owner, now, id, staleBefore)) == 1;
+        }
+    }
+
+    private static Timestamp now() {
+        return new Timestamp(System.currentTimeMillis());
+    }
+}
@@ -0,0 +1,43 @@
+package com.shoebank.nepalshop.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+/**
+ * Empties the stored cart an order was placed from. The in-memory cart is
+ * cleared as soon as the order commits and its next flush empties the rows
+ * too; this covers the cart that was not in memory, or a restart before that
+ * flush. A cart written after the order holds new items and is left alone.
+ */
+@Component
+@RequiredArgsConstructor
+public class OrderCartCleanupHandler implements OutboxHandler {
+
+    private static final String DELETE_ORDERED_LINES =
+            "DELETE FROM cart_items WHERE cart_id IN "
+                    + "(SELECT id FROM carts WHERE session_id = ? AND updated_at <= ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public String name() {
+        return "order-cart-cleanup";
+    }
+
+    @Override
+    public String eventType() {
+        return OutboxService.ORDER_PLACED;
+    }
+
+    @Override
+    public void handle(JsonNode payload) {
+        jdbcTemplate.update(DELETE_ORDERED_LINES,
+                payload.get("sessionId").asText(),
+                Timestamp.valueOf(LocalDateTime.parse(payload.get("placedAt").asText())));
+    }
+}
@@ -0,0 +1,35 @@
+package com.shoebank.nepalshop.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * Order confirmation for the customer, plus a ticket for the kitchen on food
+ * orders. There is no SMS or email provider yet, so messages are logged; a
+ * provider call goes here and must tolerate being repeated.
+ */
+@Component
+@Slf4j
+public class OrderNotificationHandler implements OutboxHandler {
+
+    @Override
+    public String name() {
+        return "order-notification";
+    }
+
+    @Override
+    public String eventType() {
+        return OutboxService.ORDER_PLACED;
+    }
+
+    @Override
+    public void handle(JsonNode payload) {
+        String orderNumber = payload.get("orderNumber").asText();
+        log.info("Notify customer {} ({}): order {} received",
+                payload.path("customerName").asText(), payload.path("customerPhone").asText(), orderNumber);
+        if ("FOOD".equals(payload.path("orderType").asText())) {
+            log.info("Notify kitchen: new food order {}", orderNumber);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.shoebank.nepalshop.service;
+
+/**
+ * Source of order numbers. Numbers must be unique across every backend
+ * instance; another implementation can replace the default by being
+ * declared {@code @Primary}.
+ */
+public interface OrderNumberGenerator {
+
+    String nextOrderNumber();
+
+    // Canonical form of a number typed in by a customer, for lookups
+    default String normalize(String orderNumber) {
+        return orderNumber == null ? null : orderNumber.trim().toUpperCase();
+    }
+}
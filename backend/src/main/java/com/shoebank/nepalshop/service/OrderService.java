@@ -1,30 +1,71 @@
 package com.shoebank.nepalshop.service;
 
 import com.shoebank.nepalshop.dto.*;
+import com.shoebank.nepalshop.event.OrderPlacedEvent;
+import com.shoebank.nepalshop.event.ProductChangedEvent;
 import com.shoebank.nepalshop.model.*;
 import com.shoebank.nepalshop.repository.*;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class OrderService {
 
+    // Same condition as ProductRepository.decrementStock, batchable
+    private static final String DECREMENT_STOCK =
+            "UPDATE products SET stock = stock - ?, updated_at = ? WHERE id = ? AND stock >= ?";
+
     private final OrderRepository orderRepository;
     private final CartRepository cartRepository;
+    private final CartStore cartStore;
+    private final StockReservationService stockReservationService;
     private final ProductRepository productRepository;
     private final DeliveryTrackingRepository deliveryTrackingRepository;
-
-    @Transactional
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final JdbcTemplate jdbcTemplate;
+    private final OrderNumberGenerator orderNumberGenerator;
+    private final OutboxService outboxService;
+    private final IdempotencyService idempotencyService;
+
+    // Not @Transactional: the cart flush must finish before this checks out a connection,
+    // otherwise checkouts waiting on the flush can hold every connection the flush needs
     public OrderDTO createOrder(CreateOrderRequest request) {
+        return createOrder(request, null);
+    }
+
+    // With a claim, the order and its replayable response commit together
+    public OrderDTO createOrder(CreateOrderRequest request, IdempotencyService.Claim claim) {
+        // Carts are written behind; make sure the rows match what the shopper sees
+        cartStore.flush(request.getSessionId());
+        return transactionTemplate.execute(status -> {
+            OrderDTO order = placeOrder(request);
+            idempotencyService.recordResponse(claim, order);
+            return order;
+        });
+    }
+
+    private OrderDTO placeOrder(CreateOrderRequest request) {
         Cart cart = cartRepository.findBySessionId(request.getSessionId())
                 .orElseThrow(() -> new RuntimeException("Cart not found"));
 
@@ -39,7 +80,7 @@ public class OrderService {
         for (CartItem cartItem : cart.getItems()) {
             Product product = cartItem.getProduct();
 
-            // Check stock
+            // Early, friendlier failure; reserveStock() is what prevents overselling
             if (product.getStock() < cartItem.getQuantity()) {
                 throw new RuntimeException("Insufficient stock for: " + product.getName());
             }
@@ -61,6 +102,7 @@ public class OrderService {
 
         // Create order
         Order order = Order.builder()
+                .orderNumber(orderNumberGenerator.nextOrderNumber())
                 .customerName(request.getCustomerName())
                 .customerEmail(request.getCustomerEmail())
                 .customerPhone(request.getCustomerPhone())
@@ -97,33 +139,72 @@ public class OrderService {
                     .build();
 
             order.addItem(orderItem);
-
-            // Update stock
-            product.setStock(product.getStock() - cartItem.getQuantity());
-            productRepository.save(product);
         }
 
         Order savedOrder = orderRepository.save(order);
 
-        // Create delivery tracking for food orders
-        if ("FOOD".equals(orderType)) {
-            DeliveryTracking tracking = DeliveryTracking.builder()
-                    .order(savedOrder)
-                    .status(DeliveryTracking.DeliveryStatus.ORDER_PLACED)
-                    .statusMessage("Your order has been placed")
-                    .build();
-            deliveryTrackingRepository.save(tracking);
+        // Tracking, stored cart cleanup and notifications run after commit, from the outbox
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("orderId", savedOrder.getId());
+        payload.put("orderNumber", savedOrder.getOrderNumber());
+        payload.put("orderType", orderType);
+        payload.put("sessionId", request.getSessionId());
+        payload.put("placedAt", savedOrder.getCreatedAt().toString());
+        payload.put("customerName", savedOrder.getCustomerName());
+        payload.put("customerPhone", savedOrder.getCustomerPhone());
+        payload.put("customerEmail", savedOrder.getCustomerEmail());
+        outboxService.enqueue(OutboxService.ORDER_PLACED, payload);
+
+        // Order and items go out as one insert batch; then stock last, so hot
+        // product rows stay locked only from here to commit
+        orderRepository.flush();
+        reserveStock(request.getSessionId(), cart.getItems());
+
+        eventPublisher.publishEvent(new OrderPlacedEvent(savedOrder.getId(), savedOrder.getOrderNumber(), request.getSessionId(),
+                savedOrder.getItems().stream().map(item -> item.getProduct().getId()).distinct().toList()));
+
+        return convertToDTO(savedOrder);
+    }
+
+    /**
+     * Confirm the cart's holds, topping up any that expired, so this checkout
+     * does not take units held by other carts. Then take stock for every line
+     * with one conditional UPDATE each, sent as a single batch in product id
+     * order so concurrent checkouts lock rows in the same order and can not
+     * deadlock. A line that does not fit throws, and the transaction rolls back
+     * the lines already taken. The holds are released once the order commits.
+     */
+    private void reserveStock(String sessionId, List<CartItem> items) {
+        Map<Long, Integer> quantities = new TreeMap<>();
+        Map<Long, String> names = new HashMap<>();
+        for (CartItem item : items) {
+            quantities.merge(item.getProduct().getId(), item.getQuantity(), Integer::sum);
+            names.put(item.getProduct().getId(), item.getProduct().getName());
         }
 
-        // Clear cart after order
-        cart.getItems().clear();
-        cartRepository.save(cart);
+        stockReservationService.holdAll(sessionId, quantities);
+
+        List<Map.Entry<Long, Integer>> lines = new ArrayList<>(quantities.entrySet());
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        int[][] updated = jdbcTemplate.batchUpdate(DECREMENT_STOCK, lines, lines.size(), (ps, line) -> {
+            ps.setInt(1, line.getValue());
+            ps.setTimestamp(2, now);
+            ps.setLong(3, line.getKey());
+            ps.setInt(4, line.getValue());
+        });
+        for (int i = 0; i < lines.size(); i++) {
+            if (updated[0][i] == 0) {
+                throw new RuntimeException("Insufficient stock for: " + names.get(lines.get(i).getKey()));
+            }
+        }
 
-        return convertToDTO(savedOrder);
+        for (Object[] row : productRepository.findStockByIdIn(quantities.keySet())) {
+            eventPublisher.publishEvent(ProductChangedEvent.stockChanged((Long) row[0], (Integer) row[1]));
+        }
     }
 
     public OrderDTO getOrderByNumber(String orderNumber) {
-        Order order = orderRepository.findByOrderNumber(orderNumber)
+        Order order = orderRepository.findByOrderNumber(orderNumberGenerator.normalize(orderNumber))
                 .orElseThrow(() -> new RuntimeException("Order not found"));
         return convertToDTO(order);
     }
@@ -146,6 +227,45 @@ public class OrderService {
                 .map(this::convertToDTO);
     }
 
+    // Keyset pagination over createdAt/id so deep pages cost the same as the first one
+    public CursorPage<OrderDTO> getOrdersAfter(Order.OrderStatus status, String after, int size) {
+        PageCursor.checkPageSize(size);
+        Pageable limit = PageRequest.of(0, size + 1);
+        List<Order> rows;
+
+        if (after == null || after.isEmpty()) {
+            rows = status != null
+                    ? orderRepository.findByOrderStatusOrderByCreatedAtDescIdDesc(status, limit)
+                    : orderRepository.findAllByOrderByCreatedAtDescIdDesc(limit);
+        } else {
+            PageCursor cursor = PageCursor.decode(after);
+            LocalDateTime createdAt;
+            try {
+                createdAt = LocalDateTime.parse(cursor.getKey());
+            } catch (DateTimeParseException e) {
+                throw new RuntimeException("Invalid cursor");
+            }
+            rows = status != null
+                    ? orderRepository.findPageBeforeByStatus(status, createdAt, cursor.getId(), limit)
+                    : orderRepository.findPageBefore(createdAt, cursor.getId(), limit);
+        }
+
+        boolean hasMore = rows.size() > size;
+        List<Order> pageRows = hasMore ? rows.subList(0, size) : rows;
+        String nextCursor = null;
+        if (hasMore) {
+            Order last = pageRows.get(pageRows.size() - 1);
+            nextCursor = new PageCursor(last.getCreatedAt().toString(), last.getId()).encode();
+        }
+
+        return CursorPage.<OrderDTO>builder()
+                .content(pageRows.stream().map(this::convertToDTO).collect(Collectors.toList()))
+                .nextCursor(nextCursor)
+                .hasMore(hasMore)
+                .size(pageRows.size())
+                .build();
+    }
+
     @Transactional
     public OrderDTO updateOrderStatus(Long orderId, Order.OrderStatus status) {
         Order order = orderRepository.findById(orderId)
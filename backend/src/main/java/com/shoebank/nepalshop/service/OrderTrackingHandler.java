@@ -0,0 +1,41 @@
+package com.shoebank.nepalshop.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.shoebank.nepalshop.model.DeliveryTracking;
+import com.shoebank.nepalshop.repository.DeliveryTrackingRepository;
+import com.shoebank.nepalshop.repository.OrderRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+// Food orders get a delivery tracking record
+@Component
+@RequiredArgsConstructor
+public class OrderTrackingHandler implements OutboxHandler {
+
+    private final OrderRepository orderRepository;
+    private final DeliveryTrackingRepository deliveryTrackingRepository;
+
+    @Override
+    public String name() {
+        return "order-tracking";
+    }
+
+    @Override
+    public String eventType() {
+        return OutboxService.ORDER_PLACED;
+    }
+
+    @Override
+    public void handle(JsonNode payload) {
+        long orderId = payload.get("orderId").asLong();
+        if (!"FOOD".equals(payload.path("orderType").asText())
+                || deliveryTrackingRepository.findByOrderId(orderId).isPresent()) {
+            return;
+        }
+        deliveryTrackingRepository.save(DeliveryTracking.builder()
+                .order(orderRepository.getReferenceById(orderId))
+                .status(DeliveryTracking.DeliveryStatus.ORDER_PLACED)
+                .statusMessage("Your order has been placed")
+                .build());
+    }
+}
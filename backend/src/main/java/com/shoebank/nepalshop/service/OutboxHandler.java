@@ -0,0 +1,20 @@
+package com.shoebank.nepalshop.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * One side effect of an outbox event. Every handler registered for a type
+ * gets its own queued delivery, retried on its own until it succeeds.
+ *
+ * Delivery is at least once: a handler can see the same event again after a
+ * crash or a timeout, so it must be safe to repeat.
+ */
+public interface OutboxHandler {
+
+    // Stored with each queued delivery; renaming a handler strands its queued rows
+    String name();
+
+    String eventType();
+
+    void handle(JsonNode payload) throws Exception;
+}
@@ -0,0 +1,238 @@
+package com.shoebank.nepalshop.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shoebank.nepalshop.dto.OutboxStatsDTO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Transactional outbox for side effects that should not slow down the
+ * request that caused them.
+ *
+ * {@link #enqueue} writes one row per registered handler in the caller's
+ * transaction, so the side effects are queued if and only if the change
+ * commits. A dispatcher drains due rows in batches, right after each commit
+ * and on a timer. It claims a batch by moving the rows' next attempt past a
+ * lease, so several instances can drain side by side and a crash mid-batch
+ * only delays those rows. Delivered rows are deleted; failed ones are retried
+ * with exponential backoff and set aside as dead after max-attempts.
+ */
+@Service
+@Slf4j
+public class OutboxService {
+
+    public static final String ORDER_PLACED = "ORDER_PLACED";
+
+    private static final String INSERT_EVENT =
+            "INSERT INTO outbox_events (event_type, handler, payload, attempts, next_attempt_at, dead, created_at) "
+                    + "VALUES (?, ?, ?, 0, ?, FALSE, ?)";
+    private static final String SELECT_DUE =
+            "SELECT id FROM outbox_events WHERE dead = FALSE AND next_attempt_at <= ? ORDER BY id LIMIT ?";
+    // Only rows still due; rows another instance claimed first have moved on
+    private static final String CLAIM =
+            "UPDATE outbox_events SET claim_token = :token, next_attempt_at = :leaseUntil "
+                    + "WHERE id IN (:ids) AND dead = FALSE AND next_attempt_at <= :now";
+    private static final String SELECT_CLAIMED =
+            "SELECT id, handler, payload, attempts FROM outbox_events WHERE claim_token = ? ORDER BY id";
+    private static final String DELETE_DELIVERED =
+            "DELETE FROM outbox_events WHERE id IN (:ids)";
+    private static final String RECORD_FAILURE =
+            "UPDATE outbox_events SET attempts = ?, next_attempt_at = ?, dead = ?, last_error = ?, claim_token = NULL "
+                    + "WHERE id = ?";
+    private static final String COUNT_BY_DEAD =
+            "SELECT dead, COUNT(*) FROM outbox_events GROUP BY dead";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final Executor executor;
+    private final Map<String, OutboxHandler> handlersByName = new HashMap<>();
+    private final Map<String, List<OutboxHandler>> handlersByType = new HashMap<>();
+    private final int batchSize;
+    private final long leaseMillis;
+    private final long backoffMillis;
+    private final long maxBackoffMillis;
+    private final int maxAttempts;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicBoolean rerun = new AtomicBoolean();
+
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder retried = new LongAdder();
+    private final LongAdder deadLettered = new LongAdder();
+
+    public OutboxService(JdbcTemplate jdbcTemplate,
+                         NamedParameterJdbcTemplate namedJdbcTemplate,
+                         ObjectMapper objectMapper,
+                         @Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+                         Executor executor,
+                         List<OutboxHandler> handlers,
+                         @Value("${app.outbox.batch-size:100}") int batchSize,
+                         @Value("${app.outbox.lease-ms:60000}") long leaseMillis,
+                         @Value("${app.outbox.backoff-ms:5000}") long backoffMillis,
+                         @Value("${app.outbox.max-backoff-ms:900000}") long maxBackoffMillis,
+                         @Value("${app.outbox.max-attempts:10}") int maxAttempts) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = namedJdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.executor = executor;
+        for (OutboxHandler handler : handlers) {
+            if (handlersByName.put(handler.name(), handler) != null) {
+                throw new IllegalStateException("Duplicate outbox handler name: " + handler.name());
+            }
+            handlersByType.computeIfAbsent(handler.eventType(), type -> new ArrayList<>()).add(handler);
+        }
+        this.batchSize = batchSize;
+        this.leaseMillis = leaseMillis;
+        this.backoffMillis = backoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+        this.maxAttempts = maxAttempts;
+    }
+
+    /**
+     * Queue {@code payload} for every handler of {@code eventType}. Must run
+     * inside the transaction whose commit the side effects depend on.
+     */
+    public void enqueue(String eventType, Object payload) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Outbox events must be written inside a transaction");
+        }
+        List<OutboxHandler> handlers = handlersByType.getOrDefault(eventType, List.of());
+        if (handlers.isEmpty()) {
+            return;
+        }
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Failed to serialize outbox event " + eventType, e);
+        }
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        jdbcTemplate.batchUpdate(INSERT_EVENT, handlers, handlers.size(), (ps, handler) -> {
+            ps.setString(1, eventType);
+            ps.setString(2, handler.name());
+            ps.setString(3, json);
+            ps.setTimestamp(4, now);
+            ps.setTimestamp(5, now);
+        });
+
+        // Deliver right away rather than waiting for the next poll
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                executor.execute(OutboxService.this::dispatch);
+            }
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${app.outbox.poll-ms:5000}")
+    public void dispatch() {
+        // One drain per instance; a request that arrives meanwhile makes it go round again
+        rerun.set(true);
+        while (rerun.get() && running.compareAndSet(false, true)) {
+            try {
+                rerun.set(false);
+                while (drainBatch() == batchSize) {
+                    // full batch, there may be more
+                }
+            } catch (RuntimeException e) {
+                log.error("Outbox dispatch failed", e);
+                return;
+            } finally {
+                running.set(false);
+            }
+        }
+    }
+
+    public OutboxStatsDTO getStats() {
+        long[] counts = new long[2];
+        jdbcTemplate.query(COUNT_BY_DEAD, rs -> {
+            counts[rs.getBoolean(1) ? 1 : 0] = rs.getLong(2);
+        });
+        return OutboxStatsDTO.builder()
+                .pending(counts[0])
+                .dead(counts[1])
+                .delivered(delivered.sum())
+                .retried(retried.sum())
+                .deadLettered(deadLettered.sum())
+                .build();
+    }
+
+    // Number of rows that were due, so the caller knows whether to go again
+    private int drainBatch() {
+        long now = System.currentTimeMillis();
+        List<Long> due = jdbcTemplate.queryForList(SELECT_DUE, Long.class, new Timestamp(now), batchSize);
+        if (due.isEmpty()) {
+            return 0;
+        }
+
+        String token = UUID.randomUUID().toString();
+        namedJdbcTemplate.update(CLAIM, Map.of(
+                "token", token,
+                "leaseUntil", new Timestamp(now + leaseMillis),
+                "ids", due,
+                "now", new Timestamp(now)));
+
+        // Read the batch first: handlers need connections of their own
+        List<Object[]> claimed = jdbcTemplate.query(SELECT_CLAIMED, (rs, rowNum) -> new Object[] {
+                rs.getLong(1), rs.getString(2), rs.getString(3), rs.getInt(4)}, token);
+
+        List<Long> done = new ArrayList<>();
+        List<Object[]> failures = new ArrayList<>();
+        for (Object[] row : claimed) {
+            long id = (Long) row[0];
+            String name = (String) row[1];
+            int attempts = (Integer) row[3] + 1;
+            try {
+                OutboxHandler handler = handlersByName.get(name);
+                if (handler == null) {
+                    throw new IllegalStateException("No outbox handler named " + name);
+                }
+                handler.handle(objectMapper.readTree((String) row[2]));
+                done.add(id);
+            } catch (Exception e) {
+                boolean dead = attempts >= maxAttempts;
+                long delay = Math.min(maxBackoffMillis, backoffMillis << Math.min(attempts - 1, 20));
+                String error = String.valueOf(e.getMessage());
+                failures.add(new Object[] {attempts, new Timestamp(System.currentTimeMillis() + delay), dead,
+                        error.length() > 1000 ? error.substring(0, 1000) : error, id});
+                if (dead) {
+                    deadLettered.increment();
+                    log.error("Outbox delivery {} to {} failed {} times, giving up", id, name, attempts, e);
+                } else {
+                    retried.increment();
+                    log.warn("Outbox delivery {} to {} failed (attempt {}), retrying in {} ms: {}",
+                            id, name, attempts, delay, e.getMessage());
+                }
+            }
+        }
+
+        if (!done.isEmpty()) {
+            namedJdbcTemplate.update(DELETE_DELIVERED, Map.of("ids", done));
+            delivered.add(done.size());
+        }
+        if (!failures.isEmpty()) {
+            jdbcTemplate.batchUpdate(RECORD_FAILURE, failures);
+        }
+        return due.size();
+    }
+}
@@ -0,0 +1,646 @@
+package com.shoebank.nepalshop.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shoebank.nepalshop.dto.BulkUpdateResultDTO;
+import com.shoebank.nepalshop.dto.ImportErrorDTO;
+import com.shoebank.nepalshop.dto.ImportResultDTO;
+import com.shoebank.nepalshop.dto.ProductCreateDTO;
+import com.shoebank.nepalshop.dto.ProductPatchDTO;
+import com.shoebank.nepalshop.event.ProductChangedEvent;
+import com.shoebank.nepalshop.model.Category;
+import com.shoebank.nepalshop.repository.CategoryRepository;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Catalog-sized product writes for admins: import, export and bulk updates.
+ *
+ * Import streams CSV or NDJSON, validates each row like the single-product
+ * form, and inserts valid rows with JDBC batches, one transaction per batch.
+ * When a batch fails its rows are retried one by one so the report can name
+ * the offending row. Export pages through products by id and writes each chunk
+ * out as it goes, so neither direction holds the whole catalog in memory.
+ */
+@Service
+@Slf4j
+public class ProductBulkService {
+
+    public static final String CSV = "csv";
+    public static final String NDJSON = "ndjson";
+
+    // Header shared by export and import; import ignores id and any unknown column
+    private static final List<String> COLUMNS = List.of("id", "name", "description", "price", "discountPrice",
+            "stock", "categoryId", "images", "size", "color", "brand", "gender", "material", "weight", "occasion",
+            "tags", "isAvailable", "isFeatured");
+    private static final List<String> REQUIRED_COLUMNS = List.of("name", "price", "stock", "categoryId");
+    // Separator for images and tags inside a single CSV cell
+    private static final String LIST_SEPARATOR = "|";
+    private static final int MAX_REPORTED_ERRORS = 500;
+
+    private static final String INSERT_PRODUCT = "INSERT INTO products (name, description, price, discount_price, "
+            + "stock, category_id, size, color, brand, gender, material, weight, occasion, is_available, "
+            + "is_featured, created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_IMAGE = "INSERT INTO product_images (product_id, image_url) VALUES (?, ?)";
+    private static final String INSERT_TAG = "INSERT INTO product_tags (product_id, tag) VALUES (?, ?)";
+
+    // One statement for every patch shape: null parameters keep the current value
+    private static final String PATCH_PRODUCT = "UPDATE products SET price = COALESCE(?, price), "
+            + "discount_price = COALESCE(?, discount_price), stock = stock + ?, "
+            + "is_available = COALESCE(?, is_available), is_featured = COALESCE(?, is_featured), updated_at = ? "
+            + "WHERE id = ? AND stock + ? >= 0";
+
+    private static final String SELECT_PRODUCTS = "SELECT id, name, description, price, discount_price, stock, "
+            + "category_id, size, color, brand, gender, material, weight, occasion, is_available, is_featured "
+            + "FROM products WHERE id > ? ORDER BY id LIMIT ?";
+    private static final String SELECT_IMAGES =
+            "SELECT product_id, image_url FROM product_images WHERE product_id IN (:ids)";
+    private static final String SELECT_TAGS = "SELECT product_id, tag FROM product_tags WHERE product_id IN (:ids)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final CategoryRepository categoryRepository;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int batchSize;
+
+    public ProductBulkService(JdbcTemplate jdbcTemplate,
+                              NamedParameterJdbcTemplate namedJdbcTemplate,
+                              CategoryRepository categoryRepository,
+                              Validator validator,
+                              ObjectMapper objectMapper,
+                              TransactionTemplate transactionTemplate,
+                              ApplicationEventPublisher eventPublisher,
+                              @Value("${app.bulk.batch-size:500}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = namedJdbcTemplate;
+        this.categoryRepository = categoryRepository;
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
+        this.batchSize = batchSize;
+    }
+
+    // Explicit format wins; otherwise go by the upload's Content-Type, defaulting to CSV
+    public static String resolveFormat(String format, String contentType) {
+        if (format != null && !format.isBlank()) {
+            String normalized = format.trim().toLowerCase(Locale.ROOT);
+            if (!CSV.equals(normalized) && !NDJSON.equals(normalized)) {
+                throw new RuntimeException("Unsupported format: " + format);
+            }
+            return normalized;
+        }
+        return contentType != null && contentType.toLowerCase(Locale.ROOT).contains("json") ? NDJSON : CSV;
+    }
+
+    public ImportResultDTO importProducts(InputStream input, String format) {
+        ImportRun run = new ImportRun(categoryRepository.findAll().stream()
+                .map(Category::getId)
+                .collect(Collectors.toSet()));
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            if (NDJSON.equals(format)) {
+                readNdjson(reader, run);
+            } else {
+                readCsv(reader, run);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read upload", e);
+        } finally {
+            // Whatever was committed before a read error still has to reach the caches
+            run.flush();
+            if (!run.importedIds.isEmpty()) {
+                eventPublisher.publishEvent(ProductChangedEvent.bulk(run.importedIds));
+            }
+        }
+
+        log.info("Product import: {} rows, {} imported, {} failed",
+                run.result.getRows(), run.result.getImported(), run.result.getFailed());
+        return run.result;
+    }
+
+    /**
+     * Apply partial changes to many products with batched set-based UPDATEs.
+     * Element collections are not touched, and caches hear about each batch once.
+     */
+    public BulkUpdateResultDTO patchProducts(List<ProductPatchDTO> patches) {
+        for (int i = 0; i < patches.size(); i++) {
+            Set<ConstraintViolation<ProductPatchDTO>> violations = validator.validate(patches.get(i));
+            if (!violations.isEmpty()) {
+                throw new RuntimeException("Item " + (i + 1) + ": " + violations.stream()
+                        .map(ConstraintViolation::getMessage)
+                        .sorted()
+                        .collect(Collectors.joining("; ")));
+            }
+        }
+
+        BulkUpdateResultDTO result = BulkUpdateResultDTO.builder().requested(patches.size()).build();
+        for (int from = 0; from < patches.size(); from += batchSize) {
+            List<ProductPatchDTO> batch = patches.subList(from, Math.min(patches.size(), from + batchSize));
+            transactionTemplate.executeWithoutResult(status -> {
+                Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+                int[] counts = jdbcTemplate.batchUpdate(PATCH_PRODUCT, new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement statement, int i) throws SQLException {
+                        ProductPatchDTO patch = batch.get(i);
+                        int delta = patch.getStockDelta() != null ? patch.getStockDelta() : 0;
+                        statement.setObject(1, patch.getPrice(), Types.DECIMAL);
+                        statement.setObject(2, patch.getDiscountPrice(), Types.DECIMAL);
+                        statement.setInt(3, delta);
+                        statement.setObject(4, patch.getIsAvailable(), Types.BOOLEAN);
+                        statement.setObject(5, patch.getIsFeatured(), Types.BOOLEAN);
+                        statement.setTimestamp(6, now);
+                        statement.setLong(7, patch.getId());
+                        statement.setInt(8, delta);
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return batch.size();
+                    }
+                });
+
+                List<Long> updatedIds = new ArrayList<>(batch.size());
+                for (int i = 0; i < counts.length; i++) {
+                    // SUCCESS_NO_INFO (-2) means the driver ran the row but did not count it
+                    if (counts[i] == 0) {
+                        result.getSkippedIds().add(batch.get(i).getId());
+                    } else {
+                        updatedIds.add(batch.get(i).getId());
+                    }
+                }
+                result.setUpdated(result.getUpdated() + updatedIds.size());
+                if (!updatedIds.isEmpty()) {
+                    eventPublisher.publishEvent(ProductChangedEvent.bulk(updatedIds));
+                }
+            });
+        }
+
+        log.info("Bulk product update: {} requested, {} updated", result.getRequested(), result.getUpdated());
+        return result;
+    }
+
+    public void exportProducts(OutputStream output, String format) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        boolean csv = CSV.equals(format);
+        if (csv) {
+            writeCsvRecord(writer, COLUMNS);
+        }
+
+        // Keyset chunks rather than one long streaming result set: the connection goes back
+        // to the pool between chunks, so a slow download cannot hold it
+        long afterId = 0;
+        while (true) {
+            List<Map<String, Object>> chunk = jdbcTemplate.query(SELECT_PRODUCTS,
+                    (rs, rowNum) -> exportRow(rs), afterId, batchSize);
+            if (chunk.isEmpty()) {
+                break;
+            }
+            attachCollections(chunk);
+
+            for (Map<String, Object> row : chunk) {
+                if (csv) {
+                    writeCsvRecord(writer, COLUMNS.stream().map(column -> csvCell(row.get(column))).toList());
+                } else {
+                    writer.write(objectMapper.writeValueAsString(row));
+                    writer.write('\n');
+                }
+            }
+            writer.flush();
+            afterId = (Long) chunk.get(chunk.size() - 1).get("id");
+        }
+        writer.flush();
+    }
+
+    // ---- import ----
+
+    private void readCsv(BufferedReader reader, ImportRun run) throws IOException {
+        List<String> header = readCsvRecord(reader);
+        if (header == null) {
+            return;
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            String name = header.get(i).replace("\uFEFF", "").trim();
+            columns.put(name.toLowerCase(Locale.ROOT), i);
+        }
+        List<String> missing = REQUIRED_COLUMNS.stream()
+                .filter(column -> !columns.containsKey(column.toLowerCase(Locale.ROOT)))
+                .toList();
+        if (!missing.isEmpty()) {
+            throw new RuntimeException("CSV header is missing columns: " + String.join(", ", missing));
+        }
+
+        int row = 0;
+        List<String> record;
+        while ((record = readCsvRecord(reader)) != null) {
+            if (record.size() == 1 && record.get(0).isBlank()) {
+                continue;
+            }
+            row++;
+            try {
+                run.add(row, fromCsv(record, columns));
+            } catch (IllegalArgumentException e) {
+                run.reject(row, e.getMessage());
+            }
+        }
+    }
+
+    private void readNdjson(BufferedReader reader, ImportRun run) throws IOException {
+        int row = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isBlank()) {
+                continue;
+            }
+            row++;
+            try {
+                run.add(row, objectMapper.readValue(line, ProductCreateDTO.class));
+            } catch (JsonProcessingException e) {
+                run.reject(row, "Invalid JSON: " + e.getOriginalMessage());
+            }
+        }
+    }
+
+    private ProductCreateDTO fromCsv(List<String> record, Map<String, Integer> columns) {
+        ProductCreateDTO dto = new ProductCreateDTO();
+        dto.setName(text(record, columns, "name"));
+        dto.setDescription(text(record, columns, "description"));
+        dto.setPrice(decimal(record, columns, "price"));
+        dto.setDiscountPrice(decimal(record, columns, "discountPrice"));
+        String stock = text(record, columns, "stock");
+        dto.setStock(stock != null ? parse(stock, "stock", Integer::valueOf) : null);
+        String categoryId = text(record, columns, "categoryId");
+        dto.setCategoryId(categoryId != null ? parse(categoryId, "categoryId", Long::valueOf) : null);
+        dto.setImages(list(record, columns, "images"));
+        dto.setSize(text(record, columns, "size"));
+        dto.setColor(text(record, columns, "color"));
+        dto.setBrand(text(record, columns, "brand"));
+        dto.setGender(text(record, columns, "gender"));
+        dto.setMaterial(text(record, columns, "material"));
+        dto.setWeight(text(record, columns, "weight"));
+        dto.setOccasion(text(record, columns, "occasion"));
+        dto.setTags(list(record, columns, "tags"));
+        Boolean available = bool(record, columns, "isAvailable");
+        dto.setIsAvailable(available != null ? available : true);
+        Boolean featured = bool(record, columns, "isFeatured");
+        dto.setIsFeatured(featured != null ? featured : false);
+        return dto;
+    }
+
+    private static String text(List<String> record, Map<String, Integer> columns, String column) {
+        Integer index = columns.get(column.toLowerCase(Locale.ROOT));
+        if (index == null || index >= record.size()) {
+            return null;
+        }
+        String value = record.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    private static BigDecimal decimal(List<String> record, Map<String, Integer> columns, String column) {
+        String value = text(record, columns, column);
+        return value != null ? parse(value, column, BigDecimal::new) : null;
+    }
+
+    private static Boolean bool(List<String> record, Map<String, Integer> columns, String column) {
+        String value = text(record, columns, column);
+        if (value == null) {
+            return null;
+        }
+        switch (value.toLowerCase(Locale.ROOT)) {
+            case "true", "1", "yes", "y":
+                return true;
+            case "false", "0", "no", "n":
+                return false;
+            default:
+                throw new IllegalArgumentException("Invalid " + column + " '" + value + "'");
+        }
+    }
+
+    private static List<String> list(List<String> record, Map<String, Integer> columns, String column) {
+        String value = text(record, columns, column);
+        if (value == null) {
+            return null;
+        }
+        return Arrays.stream(value.split("\\" + LIST_SEPARATOR))
+                .map(String::trim)
+                .filter(item -> !item.isEmpty())
+                .toList();
+    }
+
+    private static <T> T parse(String value, String column, Function<String, T> parser) {
+        try {
+            return parser.apply(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + column + " '" + value + "'");
+        }
+    }
+
+    /**
+     * Read one RFC 4180 record, or null at end of input. Quoted fields may contain
+     * commas, doubled quotes and line breaks.
+     */
+    private static List<String> readCsvRecord(BufferedReader reader) throws IOException {
+        String line = reader.readLine();
+        if (line == null) {
+            return null;
+        }
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        while (true) {
+            for (int i = 0; i < line.length(); i++) {
+                char c = line.charAt(i);
+                if (quoted) {
+                    if (c != '"') {
+                        field.append(c);
+                    } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else {
+                    field.append(c);
+                }
+            }
+            if (!quoted || (line = reader.readLine()) == null) {
+                break;
+            }
+            field.append('\n');
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private List<Long> insert(List<ProductCreateDTO> products) {
+        return transactionTemplate.execute(status -> jdbcTemplate.execute((ConnectionCallback<List<Long>>) connection -> {
+            Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+            List<Long> ids = new ArrayList<>(products.size());
+
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_PRODUCT,
+                    Statement.RETURN_GENERATED_KEYS)) {
+                for (ProductCreateDTO product : products) {
+                    bindProduct(statement, product, now);
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+                try (ResultSet keys = statement.getGeneratedKeys()) {
+                    while (keys.next()) {
+                        ids.add(keys.getLong(1));
+                    }
+                }
+            }
+            if (ids.size() != products.size()) {
+                throw new SQLException("Expected " + products.size() + " generated keys, got " + ids.size());
+            }
+
+            try (PreparedStatement images = connection.prepareStatement(INSERT_IMAGE);
+                 PreparedStatement tags = connection.prepareStatement(INSERT_TAG)) {
+                for (int i = 0; i < products.size(); i++) {
+                    addValues(images, ids.get(i), products.get(i).getImages());
+                    addValues(tags, ids.get(i), products.get(i).getTags());
+                }
+                images.executeBatch();
+                tags.executeBatch();
+            }
+            return ids;
+        }));
+    }
+
+    private static void bindProduct(PreparedStatement statement, ProductCreateDTO product, Timestamp now)
+            throws SQLException {
+        statement.setString(1, product.getName().trim());
+        statement.setString(2, product.getDescription());
+        statement.setBigDecimal(3, product.getPrice());
+        statement.setBigDecimal(4, product.getDiscountPrice());
+        statement.setInt(5, product.getStock());
+        statement.setLong(6, product.getCategoryId());
+        statement.setString(7, product.getSize());
+        statement.setString(8, product.getColor());
+        statement.setString(9, product.getBrand());
+        statement.setString(10, product.getGender());
+        statement.setString(11, product.getMaterial());
+        statement.setString(12, product.getWeight());
+        statement.setString(13, product.getOccasion());
+        statement.setBoolean(14, product.getIsAvailable() == null || product.getIsAvailable());
+        statement.setBoolean(15, product.getIsFeatured() != null && product.getIsFeatured());
+        statement.setTimestamp(16, now);
+        statement.setTimestamp(17, now);
+    }
+
+    private static void addValues(PreparedStatement statement, Long productId, List<String> values)
+            throws SQLException {
+        if (values == null) {
+            return;
+        }
+        for (String value : values) {
+            statement.setLong(1, productId);
+            if (value != null) {
+                statement.setString(2, value);
+            } else {
+                statement.setNull(2, Types.VARCHAR);
+            }
+            statement.addBatch();
+        }
+    }
+
+    /**
+     * Import state: counts, the error report and the batch waiting to be written.
+     */
+    private final class ImportRun {
+        private final Set<Long> categoryIds;
+        private final ImportResultDTO result = new ImportResultDTO();
+        private final List<Long> importedIds = new ArrayList<>();
+        private final List<ProductCreateDTO> batch = new ArrayList<>();
+        private final List<Integer> batchRows = new ArrayList<>();
+
+        private ImportRun(Set<Long> categoryIds) {
+            this.categoryIds = categoryIds;
+        }
+
+        private void add(int row, ProductCreateDTO product) {
+            result.setRows(result.getRows() + 1);
+            String problem = validate(product);
+            if (problem != null) {
+                fail(row, problem);
+                return;
+            }
+            batch.add(product);
+            batchRows.add(row);
+            if (batch.size() >= batchSize) {
+                flush();
+            }
+        }
+
+        // A row that could not even be parsed
+        private void reject(int row, String message) {
+            result.setRows(result.getRows() + 1);
+            fail(row, message);
+        }
+
+        private void fail(int row, String message) {
+            result.setFailed(result.getFailed() + 1);
+            if (result.getErrors().size() < MAX_REPORTED_ERRORS) {
+                result.getErrors().add(new ImportErrorDTO(row, message));
+            }
+        }
+
+        private void flush() {
+            if (batch.isEmpty()) {
+                return;
+            }
+            try {
+                imported(insert(batch));
+            } catch (DataAccessException batchFailure) {
+                // Find the bad rows: retry each on its own
+                for (int i = 0; i < batch.size(); i++) {
+                    try {
+                        imported(insert(List.of(batch.get(i))));
+                    } catch (DataAccessException e) {
+                        fail(batchRows.get(i), e.getMostSpecificCause().getMessage());
+                    }
+                }
+            }
+            batch.clear();
+            batchRows.clear();
+        }
+
+        private void imported(List<Long> ids) {
+            importedIds.addAll(ids);
+            result.setImported(result.getImported() + ids.size());
+        }
+
+        private String validate(ProductCreateDTO product) {
+            Set<ConstraintViolation<ProductCreateDTO>> violations = validator.validate(product);
+            if (!violations.isEmpty()) {
+                return violations.stream()
+                        .map(ConstraintViolation::getMessage)
+                        .sorted()
+                        .collect(Collectors.joining("; "));
+            }
+            if (!categoryIds.contains(product.getCategoryId())) {
+                return "Category not found: " + product.getCategoryId();
+            }
+            return null;
+        }
+    }
+
+    // ---- export ----
+
+    private static Map<String, Object> exportRow(ResultSet rs) throws SQLException {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("id", rs.getLong("id"));
+        row.put("name", rs.getString("name"));
+        row.put("description", rs.getString("description"));
+        row.put("price", rs.getBigDecimal("price"));
+        row.put("discountPrice", rs.getBigDecimal("discount_price"));
+        row.put("stock", rs.getInt("stock"));
+        row.put("categoryId", rs.getLong("category_id"));
+        row.put("images", new ArrayList<String>());
+        row.put("size", rs.getString("size"));
+        row.put("color", rs.getString("color"));
+        row.put("brand", rs.getString("brand"));
+        row.put("gender", rs.getString("gender"));
+        row.put("material", rs.getString("material"));
+        row.put("weight", rs.getString("weight"));
+        row.put("occasion", rs.getString("occasion"));
+        row.put("tags", new ArrayList<String>());
+        row.put("isAvailable", rs.getObject("is_available") == null || rs.getBoolean("is_available"));
+        row.put("isFeatured", rs.getBoolean("is_featured"));
+        return row;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void attachCollections(List<Map<String, Object>> chunk) {
+        Map<Long, Map<String, Object>> byId = new HashMap<>(chunk.size() * 2);
+        for (Map<String, Object> row : chunk) {
+            byId.put((Long) row.get("id"), row);
+        }
+        Map<String, Object> params = Map.of("ids", byId.keySet());
+        namedJdbcTemplate.query(SELECT_IMAGES, params, rs -> {
+            ((List<String>) byId.get(rs.getLong(1)).get("images")).add(rs.getString(2));
+        });
+        namedJdbcTemplate.query(SELECT_TAGS, params, rs -> {
+            ((List<String>) byId.get(rs.getLong(1)).get("tags")).add(rs.getString(2));
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static String csvCell(Object value) {
+        if (value == null) {
+            return "";
+        }
+        if (value instanceof List) {
+            return String.join(LIST_SEPARATOR, (List<String>) value);
+        }
+        if (value instanceof BigDecimal) {
+            return ((BigDecimal) value).toPlainString();
+        }
+        return value.toString();
+    }
+
+    private static void writeCsvRecord(Writer writer, List<String> cells) throws IOException {
+        for (int i = 0; i < cells.size(); i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            String cell = cells.get(i);
+            if (cell.indexOf(',') >= 0 || cell.indexOf('"') >= 0 || cell.indexOf('\n') >= 0 || cell.indexOf('\r') >= 0) {
+                writer.write('"');
+                writer.write(cell.replace("\"", "\"\""));
+                writer.write('"');
+            } else {
+                writer.write(cell);
+            }
+        }
+        writer.write("\r\n");
+    }
+}
@@ -0,0 +1,212 @@
+package com.shoebank.nepalshop.service;
+
+import com.shoebank.nepalshop.dto.CacheStatsDTO;
+import com.shoebank.nepalshop.dto.ProductDTO;
+import com.shoebank.nepalshop.event.CategoryChangedEvent;
+import com.shoebank.nepalshop.event.ProductChangedEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded LRU cache of fully built ProductDTOs plus the featured list.
+ *
+ * Every invalidation takes a new version number and stamps it on the changed
+ * products. Loaders read the version before going to the database and
+ * {@link #put} drops the result if that product was stamped in the meantime,
+ * so a slow read can never re-insert data that an admin edit has already
+ * invalidated, while loads of other products go through. Stamps are kept per
+ * stripe of product ids, so memory stays fixed; two ids sharing a stripe only
+ * cost a dropped put.
+ *
+ * The featured list is only evicted by changes to products it holds, or by
+ * saves that may add a product to it. A stock change at checkout therefore
+ * leaves it alone unless the product sold is featured.
+ */
+@Service
+public class ProductCacheService {
+
+    private static final int STRIPES = 1024;
+
+    private final int maxSize;
+    private final Map<Long, ProductDTO> products;
+    private volatile List<ProductDTO> featured;
+    private final AtomicLong version = new AtomicLong();
+    // Guarded by products: the version each stripe of ids last changed at, and when
+    // everything last did (category changes) or a product may have joined the featured list
+    private final long[] changedAt = new long[STRIPES];
+    private long allChangedAt;
+    private long featuredChangedAt;
+
+    private final LongAdder productHits = new LongAdder();
+    private final LongAdder productMisses = new LongAdder();
+    private final LongAdder productEvictions = new LongAdder();
+    private final LongAdder productInvalidations = new LongAdder();
+    private final LongAdder featuredHits = new LongAdder();
+    private final LongAdder featuredMisses = new LongAdder();
+    private final LongAdder featuredInvalidations = new LongAdder();
+
+    public ProductCacheService(@Value("${app.cache.product.max-size:1000}") int maxSize) {
+        this.maxSize = maxSize;
+        this.products = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, ProductDTO> eldest) {
+                if (size() > ProductCacheService.this.maxSize) {
+                    productEvictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public long version() {
+        return version.get();
+    }
+
+    public ProductDTO get(Long id) {
+        ProductDTO dto;
+        synchronized (products) {
+            dto = products.get(id);
+        }
+        if (dto != null) {
+            productHits.increment();
+        } else {
+            productMisses.increment();
+        }
+        return dto;
+    }
+
+    public void put(Long id, ProductDTO dto, long loadedAtVersion) {
+        synchronized (products) {
+            if (!changedSince(id, loadedAtVersion)) {
+                products.put(id, dto);
+            }
+        }
+    }
+
+    public List<ProductDTO> getFeatured() {
+        List<ProductDTO> list = featured;
+        if (list != null) {
+            featuredHits.increment();
+        } else {
+            featuredMisses.increment();
+        }
+        return list;
+    }
+
+    public void putFeatured(List<ProductDTO> list, long loadedAtVersion) {
+        synchronized (products) {
+            if (featuredChangedAt > loadedAtVersion) {
+                return;
+            }
+            for (ProductDTO dto : list) {
+                if (changedSince(dto.getId(), loadedAtVersion)) {
+                    return;
+                }
+            }
+            featured = List.copyOf(list);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(CatalogVersionService.READ_MODEL_ORDER)
+    public void onProductChanged(ProductChangedEvent event) {
+        synchronized (products) {
+            long changed = version.incrementAndGet();
+            List<Long> ids = event.getType() == ProductChangedEvent.Type.BULK
+                    ? event.getProductIds() : List.of(event.getProductId());
+            for (Long id : ids) {
+                changedAt[stripe(id)] = changed;
+                if (products.remove(id) != null) {
+                    productInvalidations.increment();
+                }
+            }
+
+            if (mayJoinFeatured(event)) {
+                featuredChangedAt = changed;
+                evictFeatured();
+            } else if (holdsAny(featured, ids)) {
+                evictFeatured();
+            }
+        }
+    }
+
+    // Category names are denormalized into every ProductDTO
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(CatalogVersionService.READ_MODEL_ORDER)
+    public void onCategoryChanged(CategoryChangedEvent event) {
+        synchronized (products) {
+            allChangedAt = version.incrementAndGet();
+            productInvalidations.add(products.size());
+            products.clear();
+            evictFeatured();
+        }
+    }
+
+    public List<CacheStatsDTO> getStats() {
+        int size;
+        synchronized (products) {
+            size = products.size();
+        }
+        List<ProductDTO> list = featured;
+        return List.of(
+                stats("productDetails", size, maxSize, productHits, productMisses,
+                        productEvictions.sum(), productInvalidations.sum()),
+                stats("featuredProducts", list != null ? 1 : 0, 1, featuredHits, featuredMisses,
+                        0, featuredInvalidations.sum()));
+    }
+
+    private boolean changedSince(Long id, long loadedAtVersion) {
+        return allChangedAt > loadedAtVersion || changedAt[stripe(id)] > loadedAtVersion;
+    }
+
+    // Bulk writes do not say which flags they set, so they count as possibly featuring
+    private static boolean mayJoinFeatured(ProductChangedEvent event) {
+        return switch (event.getType()) {
+            case BULK -> true;
+            case SAVED -> Boolean.TRUE.equals(event.getProduct().getIsFeatured())
+                    && Boolean.TRUE.equals(event.getProduct().getIsAvailable());
+            default -> false;
+        };
+    }
+
+    private static boolean holdsAny(List<ProductDTO> list, List<Long> ids) {
+        return list != null && list.stream().anyMatch(dto -> ids.contains(dto.getId()));
+    }
+
+    private static int stripe(Long id) {
+        return Math.floorMod(Long.hashCode(id), STRIPES);
+    }
+
+    private void evictFeatured() {
+        if (featured != null) {
+            featured = null;
+            featuredInvalidations.increment();
+        }
+    }
+
+    private static CacheStatsDTO stats(String name, long size, long maxSize, LongAdder hits, LongAdder misses,
+                                       long evictions, long invalidations) {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long lookups = hitCount + missCount;
+        return CacheStatsDTO.builder()
+                .name(name)
+                .size(size)
+                .maxSize(maxSize)
+                .hits(hitCount)
+                .misses(missCount)
+                .evictions(evictions)
+                .invalidations(invalidations)
+                .hitRate(lookups == 0 ? 0 : (double) hitCount / lookups)
+                .build();
+    }
+}
@@ -0,0 +1,71 @@
+package com.shoebank.nepalshop.service;
+
+import com.shoebank.nepalshop.dto.FacetCountsDTO;
+import com.shoebank.nepalshop.dto.ProductFilter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Facet counts for the shop filter sidebars, computed from the catalog index
+ * and cached per filter combination until the index changes.
+ */
+@Service
+public class ProductFacetService {
+
+    private final CatalogIndexService catalogIndexService;
+    private final List<BigDecimal> priceEdges;
+    private final Map<ProductFilter, CachedFacets> cache;
+
+    public ProductFacetService(CatalogIndexService catalogIndexService,
+                               @Value("${app.facets.price-buckets:500,1000,2000,5000}") String priceBuckets,
+                               @Value("${app.facets.cache-size:500}") int cacheSize) {
+        this.catalogIndexService = catalogIndexService;
+        this.priceEdges = Arrays.stream(priceBuckets.split(","))
+                .map(String::trim)
+                .map(BigDecimal::new)
+                .sorted()
+                .toList();
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<ProductFilter, CachedFacets> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    public FacetCountsDTO getFacets(ProductFilter filter) {
+        if (!catalogIndexService.isReady()) {
+            throw new RuntimeException("Catalog is still loading, please retry");
+        }
+
+        long version = catalogIndexService.version();
+        synchronized (cache) {
+            CachedFacets cached = cache.get(filter);
+            if (cached != null && cached.version == version) {
+                return cached.facets;
+            }
+        }
+
+        FacetCountsDTO facets = catalogIndexService.facets(filter, priceEdges);
+        synchronized (cache) {
+            cache.put(filter, new CachedFacets(version, facets));
+        }
+        return facets;
+    }
+
+    private static final class CachedFacets {
+        private final long version;
+        private final FacetCountsDTO facets;
+
+        private CachedFacets(long version, FacetCountsDTO facets) {
+            this.version = version;
+            this.facets = facets;
+        }
+    }
+}
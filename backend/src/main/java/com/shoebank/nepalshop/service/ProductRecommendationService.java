@@ -0,0 +1,175 @@
+package com.shoebank.nepalshop.service;
+
+import com.shoebank.nepalshop.dto.ProductDTO;
+import com.shoebank.nepalshop.event.OrderPlacedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.LongStream;
+
+/**
+ * "Frequently bought together" from order history.
+ *
+ * Keeps a sparse co-occurrence matrix (how many orders contain both products)
+ * and, per product, the ids of its top-K neighbours by co-count in a long[].
+ * A product's list depends only on its own row, so a new order only changes
+ * the lists of the products in it.
+ *
+ * A scheduled full pass rebuilds everything from order_items; in between,
+ * committed orders are folded in as they arrive. Orders that commit while a
+ * full pass is reading are replayed on top of its result.
+ */
+@Service
+@Slf4j
+public class ProductRecommendationService {
+
+    // Very large orders add little signal but quadratically many pairs
+    private static final int MAX_PRODUCTS_PER_ORDER = 50;
+
+    private static final String SELECT_ORDER_ITEMS =
+            "SELECT order_id, product_id FROM order_items ORDER BY order_id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CatalogIndexService catalogIndexService;
+    private final int topK;
+
+    private final Object lock = new Object();
+    // Guarded by lock
+    private Map<Long, Map<Long, Integer>> pairCounts = new HashMap<>();
+    private List<OrderPlacedEvent> pendingOrders;
+
+    // Replaced whole by a full pass, patched per product in between
+    private volatile Map<Long, long[]> neighbours = new ConcurrentHashMap<>();
+
+    public ProductRecommendationService(JdbcTemplate jdbcTemplate,
+                                        CatalogIndexService catalogIndexService,
+                                        @Value("${app.related.top-k:10}") int topK) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.catalogIndexService = catalogIndexService;
+        this.topK = topK;
+    }
+
+    /**
+     * Up to {@code limit} available products most often ordered together with
+     * the given one. Served from memory; empty until the first pass has run.
+     */
+    public List<ProductDTO> getRelated(Long productId, int limit) {
+        long[] ids = neighbours.get(productId);
+        if (ids == null) {
+            return List.of();
+        }
+        List<ProductDTO> result = new ArrayList<>(Math.min(limit, ids.length));
+        for (int i = 0; i < ids.length && result.size() < limit; i++) {
+            ProductDTO product = catalogIndexService.get(ids[i]);
+            if (product != null) {
+                result.add(product);
+            }
+        }
+        return result;
+    }
+
+    @Scheduled(fixedDelayString = "${app.related.rebuild-ms:86400000}")
+    public void rebuild() {
+        synchronized (lock) {
+            pendingOrders = new ArrayList<>();
+        }
+
+        Map<Long, Map<Long, Integer>> pairs = new HashMap<>();
+        long[] lastOrderId = {0};
+        List<Long> orderProducts = new ArrayList<>();
+        // Rows arrive by order id, so this comes out sorted
+        LongStream.Builder scannedOrders = LongStream.builder();
+        jdbcTemplate.query(SELECT_ORDER_ITEMS, rs -> {
+            long orderId = rs.getLong(1);
+            if (orderId != lastOrderId[0]) {
+                count(pairs, orderProducts);
+                orderProducts.clear();
+                lastOrderId[0] = orderId;
+                scannedOrders.add(orderId);
+            }
+            orderProducts.add(rs.getLong(2));
+        });
+        count(pairs, orderProducts);
+        long[] scanned = scannedOrders.build().toArray();
+
+        synchronized (lock) {
+            pairCounts = pairs;
+            // Orders committed during the scan may or may not be in it. Ids are handed
+            // out before commit and by several nodes, so only the scan itself can tell
+            for (OrderPlacedEvent event : pendingOrders) {
+                if (Arrays.binarySearch(scanned, event.getOrderId()) < 0) {
+                    count(pairCounts, event.getProductIds());
+                }
+            }
+            pendingOrders = null;
+
+            Map<Long, long[]> rebuilt = new ConcurrentHashMap<>(pairCounts.size() * 2);
+            pairCounts.forEach((productId, row) -> rebuilt.put(productId, topNeighbours(row)));
+            neighbours = rebuilt;
+        }
+        log.info("Related products rebuilt for {} products", neighbours.size());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderPlaced(OrderPlacedEvent event) {
+        synchronized (lock) {
+            if (pendingOrders != null) {
+                pendingOrders.add(event);
+                return;
+            }
+            count(pairCounts, event.getProductIds());
+            for (long productId : distinct(event.getProductIds())) {
+                Map<Long, Integer> row = pairCounts.get(productId);
+                if (row != null) {
+                    neighbours.put(productId, topNeighbours(row));
+                }
+            }
+        }
+    }
+
+    private static void count(Map<Long, Map<Long, Integer>> pairs, List<Long> products) {
+        long[] ids = distinct(products);
+        if (ids.length < 2 || ids.length > MAX_PRODUCTS_PER_ORDER) {
+            return;
+        }
+        for (long a : ids) {
+            Map<Long, Integer> row = pairs.computeIfAbsent(a, k -> new HashMap<>());
+            for (long b : ids) {
+                if (a != b) {
+                    row.merge(b, 1, Integer::sum);
+                }
+            }
+        }
+    }
+
+    private static long[] distinct(List<Long> products) {
+        return products.stream().mapToLong(Long::longValue).distinct().toArray();
+    }
+
+    private long[] topNeighbours(Map<Long, Integer> row) {
+        // Highest co-count first, lower id breaking ties so the order is stable
+        long[][] ranked = new long[row.size()][];
+        int n = 0;
+        for (Map.Entry<Long, Integer> cell : row.entrySet()) {
+            ranked[n++] = new long[] {cell.getKey(), cell.getValue()};
+        }
+        Arrays.sort(ranked, (x, y) -> x[1] != y[1] ? Long.compare(y[1], x[1]) : Long.compare(x[0], y[0]));
+
+        int k = Math.min(topK, ranked.length);
+        long[] ids = new long[k];
+        for (int i = 0; i < k; i++) {
+            ids[i] = ranked[i][0];
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,200 @@
+package com.shoebank.nepalshop.service;
+
+import com.shoebank.nepalshop.dto.ProductDTO;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * Inverted index over product name and description.
+ *
+ * Terms are lowercased and ASCII-folded; every query token matches as a prefix
+ * of indexed terms and all tokens must match. Scoring is BM25F with name hits
+ * weighted above description hits. Kept in sync by {@link CatalogIndexService}.
+ */
+@Component
+public class ProductSearchIndex {
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final double NAME_WEIGHT = 3.0;
+    private static final double DESCRIPTION_WEIGHT = 1.0;
+    // Prefix expansions count for less than an exact term match
+    private static final double PREFIX_PENALTY = 0.7;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final NavigableMap<String, Map<Long, Posting>> dictionary = new TreeMap<>();
+    private final Map<Long, Document> documents = new HashMap<>();
+    private long totalNameLength;
+    private long totalDescriptionLength;
+
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return tokens;
+        }
+        String folded = DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        for (String token : SEPARATORS.split(folded.toLowerCase(Locale.ROOT))) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Score every document matching all query tokens. Returns an empty map when nothing matches.
+     */
+    public Map<Long, Double> search(String query) {
+        Set<String> tokens = new LinkedHashSet<>(tokenize(query));
+        if (tokens.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        lock.readLock().lock();
+        try {
+            int docCount = documents.size();
+            double avgName = docCount == 0 ? 1 : Math.max(1.0, (double) totalNameLength / docCount);
+            double avgDescription = docCount == 0 ? 1 : Math.max(1.0, (double) totalDescriptionLength / docCount);
+
+            Map<Long, Double> scores = null;
+            for (String token : tokens) {
+                Map<Long, Double> tokenScores = new HashMap<>();
+                for (Map.Entry<String, Map<Long, Posting>> term
+                        : dictionary.subMap(token, true, token + Character.MAX_VALUE, false).entrySet()) {
+                    Map<Long, Posting> postings = term.getValue();
+                    double idf = Math.log(1 + (docCount - postings.size() + 0.5) / (postings.size() + 0.5));
+                    double boost = term.getKey().equals(token) ? 1.0 : PREFIX_PENALTY;
+
+                    for (Map.Entry<Long, Posting> hit : postings.entrySet()) {
+                        Document doc = documents.get(hit.getKey());
+                        Posting posting = hit.getValue();
+                        double tf = NAME_WEIGHT * posting.nameFrequency / (1 - B + B * doc.nameLength / avgName)
+                                + DESCRIPTION_WEIGHT * posting.descriptionFrequency
+                                / (1 - B + B * doc.descriptionLength / avgDescription);
+                        double score = boost * idf * tf * (K1 + 1) / (tf + K1);
+                        tokenScores.merge(hit.getKey(), score, Math::max);
+                    }
+                }
+
+                if (scores == null) {
+                    scores = tokenScores;
+                } else {
+                    scores.keySet().retainAll(tokenScores.keySet());
+                    scores.replaceAll((id, score) -> score + tokenScores.get(id));
+                }
+                if (scores.isEmpty()) {
+                    break;
+                }
+            }
+            return scores;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void rebuild(List<ProductDTO> products) {
+        lock.writeLock().lock();
+        try {
+            dictionary.clear();
+            documents.clear();
+            totalNameLength = 0;
+            totalDescriptionLength = 0;
+            for (ProductDTO product : products) {
+                add(product);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void index(ProductDTO product) {
+        lock.writeLock().lock();
+        try {
+            remove(product.getId());
+            add(product);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            Document doc = documents.remove(productId);
+            if (doc == null) {
+                return;
+            }
+            totalNameLength -= doc.nameLength;
+            totalDescriptionLength -= doc.descriptionLength;
+            for (String term : doc.terms) {
+                Map<Long, Posting> postings = dictionary.get(term);
+                if (postings != null) {
+                    postings.remove(productId);
+                    if (postings.isEmpty()) {
+                        dictionary.remove(term);
+                    }
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void add(ProductDTO product) {
+        List<String> nameTokens = tokenize(product.getName());
+        List<String> descriptionTokens = tokenize(product.getDescription());
+        Set<String> terms = new LinkedHashSet<>();
+
+        for (String token : nameTokens) {
+            posting(token, product.getId()).nameFrequency++;
+            terms.add(token);
+        }
+        for (String token : descriptionTokens) {
+            posting(token, product.getId()).descriptionFrequency++;
+            terms.add(token);
+        }
+
+        documents.put(product.getId(), new Document(nameTokens.size(), descriptionTokens.size(), terms));
+        totalNameLength += nameTokens.size();
+        totalDescriptionLength += descriptionTokens.size();
+    }
+
+    private Posting posting(String term, Long productId) {
+        return dictionary.computeIfAbsent(term, t -> new HashMap<>())
+                .computeIfAbsent(productId, id -> new Posting());
+    }
+
+    private static final class Posting {
+        private int nameFrequency;
+        private int descriptionFrequency;
+    }
+
+    private static final class Document {
+        private final int nameLength;
+        private final int descriptionLength;
+        private final Set<String> terms;
+
+        private Document(int nameLength, int descriptionLength, Set<String> terms) {
+            this.nameLength = nameLength;
+            this.descriptionLength = descriptionLength;
+            this.terms = terms;
+        }
+    }
+}
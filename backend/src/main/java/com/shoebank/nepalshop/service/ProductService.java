@@ -1,20 +1,35 @@
 package com.shoebank.nepalshop.service;
 
+import com.shoebank.nepalshop.dto.CursorPage;
+import com.shoebank.nepalshop.dto.FacetCountsDTO;
+import com.shoebank.nepalshop.dto.PageCursor;
 import com.shoebank.nepalshop.dto.ProductCreateDTO;
 import com.shoebank.nepalshop.dto.ProductDTO;
+import com.shoebank.nepalshop.dto.ProductFilter;
+import com.shoebank.nepalshop.event.ProductChangedEvent;
 import com.shoebank.nepalshop.model.Category;
 import com.shoebank.nepalshop.model.Product;
 import com.shoebank.nepalshop.repository.CategoryRepository;
 import com.shoebank.nepalshop.repository.ProductRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -23,33 +38,144 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class ProductService {
 
+    private static final int BULK_RELOAD_CHUNK = 1000;
+
     private final ProductRepository productRepository;
     private final CategoryRepository categoryRepository;
+    private final CatalogIndexService catalogIndexService;
+    private final ProductCacheService productCacheService;
+    private final ProductFacetService productFacetService;
+    private final PlatformTransactionManager transactionManager;
+    private final ApplicationEventPublisher eventPublisher;
+
+    // Load every available product into the in-memory catalog index once the app is up
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void rebuildCatalogIndex() {
+        catalogIndexService.rebuild(productRepository.findByIsAvailableTrue(), this::convertToDTO);
+    }
+
+    // Bulk writers bypass JPA, so read back what they touched and reindex it in one pass
+    // The condition keeps other product events from opening a transaction here
+    @TransactionalEventListener(fallbackExecution = true, condition = "#event.type.name() == 'BULK'")
+    @Order(CatalogVersionService.READ_MODEL_ORDER)
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    public void onBulkChange(ProductChangedEvent event) {
+        if (!catalogIndexService.isReady()) {
+            return;
+        }
+        List<Long> ids = event.getProductIds();
+        List<Product> products = new ArrayList<>(ids.size());
+        for (int from = 0; from < ids.size(); from += BULK_RELOAD_CHUNK) {
+            products.addAll(productRepository.findWithCategoryByIdIn(
+                    ids.subList(from, Math.min(ids.size(), from + BULK_RELOAD_CHUNK))));
+        }
+        catalogIndexService.reindex(ids, products, this::convertToDTO);
+    }
 
+    // Not @Transactional: index hits must not check out a connection; the fallback loads in readOnlyTx()
     public Page<ProductDTO> getProducts(Long categoryId, String search, int page, int size,
                                          String sortBy, String sortDir,
                                          BigDecimal minPrice, BigDecimal maxPrice,
                                          String brand, String gender,
                                          String occasion, String tag) {
+        PageCursor.checkPageSize(size);
+        if (page < 0) {
+            throw new RuntimeException("Page must not be negative");
+        }
         // Parse sort field and direction
         Sort.Direction direction = "asc".equalsIgnoreCase(sortDir) ? Sort.Direction.ASC : Sort.Direction.DESC;
-        String sortField = sortBy != null ? sortBy : "createdAt";
-        
+
+        ProductFilter filter = buildFilter(categoryId, search, minPrice, maxPrice, brand, gender, occasion, tag);
+        String sortField = resolveSortField(sortBy, filter);
+
+        // Serve from the in-memory index; fall back to the database until it is built
+        // or when sorting on a field the index does not keep an order for
+        if (catalogIndexService.isReady() && catalogIndexService.supportsSort(sortField)) {
+            return catalogIndexService.query(filter, sortField, direction, page, size);
+        }
+
+        if (CatalogIndexService.RELEVANCE.equals(sortField)) {
+            sortField = "createdAt";
+        }
         Pageable pageable = PageRequest.of(page, size, Sort.by(direction, sortField));
+        return readOnlyTx().execute(status -> productRepository.findByFilters(
+                filter.getCategoryId(), filter.getSearch(), filter.getMinPrice(), filter.getMaxPrice(),
+                filter.getBrand(), filter.getGender(), filter.getOccasion(), filter.getTag(),
+                pageable).map(this::convertToDTO));
+    }
+
+    // Cursor-based variant of getProducts: no OFFSET scan and no total count. Not @Transactional, like getProducts
+    public CursorPage<ProductDTO> getProductsAfter(Long categoryId, String search, String after, int size,
+                                                   String sortBy, String sortDir,
+                                                   BigDecimal minPrice, BigDecimal maxPrice,
+                                                   String brand, String gender,
+                                                   String occasion, String tag) {
+        PageCursor.checkPageSize(size);
+        Sort.Direction direction = "asc".equalsIgnoreCase(sortDir) ? Sort.Direction.ASC : Sort.Direction.DESC;
+        ProductFilter filter = buildFilter(categoryId, search, minPrice, maxPrice, brand, gender, occasion, tag);
+        // Searches page newest first here; ranked results are only offered with page numbers
+        String sortField = sortBy != null ? sortBy : "createdAt";
+        if (CatalogIndexService.RELEVANCE.equals(sortField)) {
+            throw new RuntimeException("Cursor paging does not support relevance order, use page numbers instead");
+        }
+        if (!CatalogIndexService.CURSOR_SORTS.contains(sortField)) {
+            throw new RuntimeException("Unsupported sort for cursor paging: " + sortField
+                    + " (use createdAt, price or name)");
+        }
+        PageCursor cursor = after != null && !after.isEmpty() ? PageCursor.decode(after) : null;
+
+        if (catalogIndexService.isReady()) {
+            return catalogIndexService.queryAfter(filter, sortField, direction, cursor, size);
+        }
+
+        // Until the index is built only the default newest-first order has a database keyset query
+        if (direction != Sort.Direction.DESC || !"createdAt".equals(sortField)) {
+            throw new RuntimeException("Cursor paging for this sort is not available yet, please retry");
+        }
+
+        LocalDateTime afterCreatedAt = null;
+        Long afterId = null;
+        if (cursor != null) {
+            try {
+                afterCreatedAt = LocalDateTime.parse(cursor.getKey());
+            } catch (DateTimeParseException e) {
+                throw new RuntimeException("Invalid cursor");
+            }
+            afterId = cursor.getId();
+        }
+
+        LocalDateTime beforeCreatedAt = afterCreatedAt;
+        Long beforeId = afterId;
+        return readOnlyTx().execute(status -> {
+            List<Product> rows = productRepository.findByFiltersBefore(
+                    filter.getCategoryId(), filter.getSearch(), filter.getMinPrice(), filter.getMaxPrice(),
+                    filter.getBrand(), filter.getGender(), filter.getOccasion(), filter.getTag(),
+                    beforeCreatedAt, beforeId, PageRequest.of(0, size + 1));
 
-        // Normalize empty strings to null for JPQL null-checks
-        String searchTerm = (search != null && !search.trim().isEmpty()) ? search.trim() : null;
-        String brandParam = (brand != null && !brand.trim().isEmpty()) ? brand.trim() : null;
-        String genderParam = (gender != null && !gender.trim().isEmpty()) ? gender.trim() : null;
-        String occasionParam = (occasion != null && !occasion.trim().isEmpty()) ? occasion.trim() : null;
-        String tagParam = (tag != null && !tag.trim().isEmpty()) ? tag.trim() : null;
+            boolean hasMore = rows.size() > size;
+            List<Product> pageRows = hasMore ? rows.subList(0, size) : rows;
+            String nextCursor = null;
+            if (hasMore) {
+                Product last = pageRows.get(pageRows.size() - 1);
+                nextCursor = new PageCursor(last.getCreatedAt().toString(), last.getId()).encode();
+            }
 
-        Page<Product> products = productRepository.findByFilters(
-                categoryId, searchTerm, minPrice, maxPrice,
-                brandParam, genderParam, occasionParam, tagParam,
-                pageable);
+            return CursorPage.<ProductDTO>builder()
+                    .content(pageRows.stream().map(this::convertToDTO).collect(Collectors.toList()))
+                    .nextCursor(nextCursor)
+                    .hasMore(hasMore)
+                    .size(pageRows.size())
+                    .build();
+        });
+    }
 
-        return products.map(this::convertToDTO);
+    public FacetCountsDTO getFacets(Long categoryId, String search,
+                                    BigDecimal minPrice, BigDecimal maxPrice,
+                                    String brand, String gender,
+                                    String occasion, String tag) {
+        return productFacetService.getFacets(
+                buildFilter(categoryId, search, minPrice, maxPrice, brand, gender, occasion, tag));
     }
 
     // Backward-compatible overload for admin/internal calls
@@ -57,17 +183,47 @@ public class ProductService {
         return getProducts(categoryId, search, page, size, sortBy, "desc", null, null, null, null, null, null);
     }
 
+    // Not @Transactional: cache hits must not check out a connection; misses load in readOnlyTx()
     public List<ProductDTO> getFeaturedProducts() {
-        return productRepository.findByIsFeaturedTrueAndIsAvailableTrue()
-                .stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        List<ProductDTO> cached = productCacheService.getFeatured();
+        if (cached != null) {
+            return cached;
+        }
+
+        long version = productCacheService.version();
+        List<ProductDTO> products = readOnlyTx().execute(status ->
+                productRepository.findByIsFeaturedTrueAndIsAvailableTrue()
+                        .stream()
+                        .map(this::convertToDTO)
+                        .collect(Collectors.toList()));
+        productCacheService.putFeatured(products, version);
+        return products;
+    }
+
+    // Newest available products; from the catalog index once it is built, so no connection is used
+    public List<ProductDTO> getNewArrivals(int limit) {
+        if (catalogIndexService.isReady()) {
+            return catalogIndexService.query(new ProductFilter(), "createdAt", Sort.Direction.DESC, 0, limit)
+                    .getContent();
+        }
+        Pageable pageable = PageRequest.of(0, limit, Sort.by(Sort.Direction.DESC, "createdAt"));
+        return readOnlyTx().execute(status ->
+                productRepository.findByFilters(null, null, null, null, null, null, null, null, pageable)
+                        .map(this::convertToDTO)
+                        .getContent());
     }
 
     public ProductDTO getProductById(Long id) {
-        Product product = productRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Product not found"));
-        return convertToDTO(product);
+        ProductDTO cached = productCacheService.get(id);
+        if (cached != null) {
+            return cached;
+        }
+
+        long version = productCacheService.version();
+        ProductDTO product = readOnlyTx().execute(status -> convertToDTO(productRepository.findWithCategoryById(id)
+                .orElseThrow(() -> new RuntimeException("Product not found"))));
+        productCacheService.put(id, product, version);
+        return product;
     }
 
     @Transactional
@@ -95,7 +251,7 @@ public class ProductService {
                 .isFeatured(dto.getIsFeatured())
                 .build();
 
-        return convertToDTO(productRepository.save(product));
+        return publishSaved(productRepository.save(product));
     }
 
     @Transactional
@@ -126,7 +282,7 @@ public class ProductService {
         product.setIsAvailable(dto.getIsAvailable());
         product.setIsFeatured(dto.getIsFeatured());
 
-        return convertToDTO(productRepository.save(product));
+        return publishSaved(productRepository.save(product));
     }
 
     @Transactional
@@ -135,19 +291,57 @@ public class ProductService {
             throw new RuntimeException("Product not found");
         }
         productRepository.deleteById(id);
+        eventPublisher.publishEvent(ProductChangedEvent.deleted(id));
     }
 
     @Transactional
     public void updateStock(Long productId, int quantity) {
-        Product product = productRepository.findById(productId)
-                .orElseThrow(() -> new RuntimeException("Product not found"));
+        if (productRepository.decrementStock(productId, quantity) == 0) {
+            throw new RuntimeException(productRepository.existsById(productId)
+                    ? "Insufficient stock" : "Product not found");
+        }
+        for (Object[] row : productRepository.findStockByIdIn(List.of(productId))) {
+            eventPublisher.publishEvent(ProductChangedEvent.stockChanged(productId, (Integer) row[1]));
+        }
+    }
+
+    private TransactionTemplate readOnlyTx() {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setReadOnly(true);
+        return template;
+    }
+
+    private ProductDTO publishSaved(Product product) {
+        ProductDTO dto = convertToDTO(product);
+        eventPublisher.publishEvent(ProductChangedEvent.saved(dto, product.getCreatedAt()));
+        return dto;
+    }
+
+    // Normalize empty strings to null for JPQL null-checks
+    private ProductFilter buildFilter(Long categoryId, String search, BigDecimal minPrice, BigDecimal maxPrice,
+                                      String brand, String gender, String occasion, String tag) {
+        return ProductFilter.builder()
+                .categoryId(categoryId)
+                .search(normalize(search))
+                .minPrice(minPrice)
+                .maxPrice(maxPrice)
+                .brand(normalize(brand))
+                .gender(normalize(gender))
+                .occasion(normalize(occasion))
+                .tag(normalize(tag))
+                .build();
+    }
 
-        int newStock = product.getStock() - quantity;
-        if (newStock < 0) {
-            throw new RuntimeException("Insufficient stock");
+    // Searches without an explicit sort come back in relevance order
+    private String resolveSortField(String sortBy, ProductFilter filter) {
+        if (sortBy != null) {
+            return sortBy;
         }
-        product.setStock(newStock);
-        productRepository.save(product);
+        return filter.getSearch() != null ? CatalogIndexService.RELEVANCE : "createdAt";
+    }
+
+    private String normalize(String value) {
+        return (value != null && !value.trim().isEmpty()) ? value.trim() : null;
     }
 
     private ProductDTO convertToDTO(Product product) {
@@ -181,7 +375,7 @@ public class ProductService {
                 .material(product.getMaterial())
                 .weight(product.getWeight())
                 .occasion(product.getOccasion())
-                .tags(product.getTags() != null ? product.getTags() : new ArrayList<>())
+                .tags(product.getTags() != null ? new ArrayList<>(product.getTags()) : new ArrayList<>())
                 .isAvailable(product.getIsAvailable())
                 .isFeatured(product.getIsFeatured())
                 .build();
@@ -0,0 +1,228 @@
+package com.shoebank.nepalshop.service;
+
+import com.shoebank.nepalshop.dto.ProductDTO;
+import com.shoebank.nepalshop.dto.SuggestionDTO;
+import com.shoebank.nepalshop.event.OrderPlacedEvent;
+import com.shoebank.nepalshop.event.ProductChangedEvent;
+import com.shoebank.nepalshop.repository.OrderItemRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Autocomplete for the search box over product names, brands and tags.
+ *
+ * Every word-start suffix of each phrase ("nike air max", "air max", "max") is
+ * kept in one sorted array, so a prefix lookup is a binary search plus a short
+ * scan. Prefixes of up to {@value #PRECOMPUTED_PREFIX} characters match too many
+ * keys to scan, so their top completions are precomputed. Suggestions are ranked
+ * by how many orders contain the product (summed for brands and tags).
+ *
+ * The structure is immutable and swapped as a whole. Product edits and new
+ * orders mark it dirty and a scheduled refresh rebuilds it from the catalog
+ * index, coalescing bursts of changes into one rebuild.
+ */
+@Service
+@Slf4j
+public class ProductSuggestService {
+
+    private static final int PRECOMPUTED_PREFIX = 3;
+
+    private static final Comparator<Suggestion> RANKING = Comparator
+            .comparingLong((Suggestion s) -> -s.popularity)
+            .thenComparingInt(s -> s.dto.getText().length())
+            .thenComparing(s -> s.dto.getText());
+
+    private final CatalogIndexService catalogIndexService;
+    private final OrderItemRepository orderItemRepository;
+    private final int maxResults;
+
+    private final Map<Long, Long> orderCounts = new ConcurrentHashMap<>();
+    private final AtomicBoolean dirty = new AtomicBoolean(true);
+    private volatile boolean countsLoaded = false;
+    private volatile Snapshot snapshot = new Snapshot(new String[0], new Suggestion[0], Map.of());
+
+    public ProductSuggestService(CatalogIndexService catalogIndexService,
+                                 OrderItemRepository orderItemRepository,
+                                 @Value("${app.suggest.max-results:10}") int maxResults) {
+        this.catalogIndexService = catalogIndexService;
+        this.orderItemRepository = orderItemRepository;
+        this.maxResults = maxResults;
+    }
+
+    public List<SuggestionDTO> suggest(String query, int limit) {
+        String prefix = normalize(query);
+        if (prefix.isEmpty()) {
+            return List.of();
+        }
+        int n = Math.max(1, Math.min(limit, maxResults));
+        Snapshot current = snapshot;
+
+        if (prefix.length() <= PRECOMPUTED_PREFIX) {
+            Suggestion[] top = current.shortPrefixes.get(prefix);
+            if (top == null) {
+                return List.of();
+            }
+            List<SuggestionDTO> result = new ArrayList<>(Math.min(n, top.length));
+            for (int i = 0; i < top.length && i < n; i++) {
+                result.add(top[i].dto);
+            }
+            return result;
+        }
+
+        int from = Arrays.binarySearch(current.keys, prefix);
+        if (from < 0) {
+            from = -(from + 1);
+        }
+        List<Suggestion> best = new ArrayList<>(n + 1);
+        for (int i = from; i < current.keys.length && current.keys[i].startsWith(prefix); i++) {
+            offer(best, current.suggestions[i], n);
+        }
+        List<SuggestionDTO> result = new ArrayList<>(best.size());
+        for (Suggestion suggestion : best) {
+            result.add(suggestion.dto);
+        }
+        return result;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.getType() != ProductChangedEvent.Type.STOCK_CHANGED) {
+            dirty.set(true);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderPlaced(OrderPlacedEvent event) {
+        for (Long productId : event.getProductIds()) {
+            orderCounts.merge(productId, 1L, Long::sum);
+        }
+        dirty.set(true);
+    }
+
+    @Scheduled(fixedDelayString = "${app.suggest.refresh-ms:5000}")
+    public void refresh() {
+        if (!catalogIndexService.isReady() || !dirty.getAndSet(false)) {
+            return;
+        }
+        if (!countsLoaded) {
+            for (Object[] row : orderItemRepository.countOrdersByProduct()) {
+                orderCounts.put((Long) row[0], (Long) row[1]);
+            }
+            countsLoaded = true;
+        }
+        snapshot = build(catalogIndexService.snapshot());
+        log.debug("Suggestion index rebuilt with {} keys", snapshot.keys.length);
+    }
+
+    private Snapshot build(List<ProductDTO> products) {
+        // One suggestion per product, and one per distinct brand / tag with summed popularity
+        Map<String, Suggestion> phrases = new LinkedHashMap<>();
+        for (ProductDTO product : products) {
+            long popularity = orderCounts.getOrDefault(product.getId(), 0L);
+            phrase(phrases, "PRODUCT", product.getName(), product.getId()).popularity += popularity;
+            if (product.getBrand() != null) {
+                phrase(phrases, "BRAND", product.getBrand(), null).popularity += popularity;
+            }
+            if (product.getTags() != null) {
+                for (String tag : product.getTags()) {
+                    phrase(phrases, "TAG", tag, null).popularity += popularity;
+                }
+            }
+        }
+
+        List<Map.Entry<String, Suggestion>> entries = new ArrayList<>();
+        for (Suggestion suggestion : phrases.values()) {
+            suggestion.dto.setPopularity(suggestion.popularity);
+            String key = normalize(suggestion.dto.getText());
+            for (int start = 0; start < key.length(); start = key.indexOf(' ', start) + 1) {
+                entries.add(Map.entry(key.substring(start), suggestion));
+                if (key.indexOf(' ', start) < 0) {
+                    break;
+                }
+            }
+        }
+        entries.sort(Map.Entry.comparingByKey());
+
+        String[] keys = new String[entries.size()];
+        Suggestion[] suggestions = new Suggestion[entries.size()];
+        Map<String, List<Suggestion>> candidates = new HashMap<>();
+        for (int i = 0; i < entries.size(); i++) {
+            keys[i] = entries.get(i).getKey();
+            suggestions[i] = entries.get(i).getValue();
+            for (int length = 1; length <= PRECOMPUTED_PREFIX && length <= keys[i].length(); length++) {
+                offer(candidates.computeIfAbsent(keys[i].substring(0, length), k -> new ArrayList<>()),
+                        suggestions[i], maxResults);
+            }
+        }
+
+        Map<String, Suggestion[]> shortPrefixes = new HashMap<>(candidates.size() * 2);
+        candidates.forEach((prefix, top) -> shortPrefixes.put(prefix, top.toArray(new Suggestion[0])));
+        return new Snapshot(keys, suggestions, shortPrefixes);
+    }
+
+    private static Suggestion phrase(Map<String, Suggestion> phrases, String type, String text, Long productId) {
+        String key = type + ":" + (productId != null ? productId : normalize(text));
+        return phrases.computeIfAbsent(key, k -> new Suggestion(SuggestionDTO.builder()
+                .text(text.trim())
+                .type(type)
+                .productId(productId)
+                .build()));
+    }
+
+    // Keep the n best suggestions in ranking order, ignoring repeats of the same phrase
+    private static void offer(List<Suggestion> best, Suggestion candidate, int n) {
+        for (Suggestion existing : best) {
+            if (existing == candidate) {
+                return;
+            }
+        }
+        int index = 0;
+        while (index < best.size() && RANKING.compare(best.get(index), candidate) <= 0) {
+            index++;
+        }
+        if (index < n) {
+            best.add(index, candidate);
+            if (best.size() > n) {
+                best.remove(best.size() - 1);
+            }
+        }
+    }
+
+    private static String normalize(String text) {
+        return String.join(" ", ProductSearchIndex.tokenize(text));
+    }
+
+    private static final class Suggestion {
+        private final SuggestionDTO dto;
+        private long popularity;
+
+        private Suggestion(SuggestionDTO dto) {
+            this.dto = dto;
+        }
+    }
+
+    private static final class Snapshot {
+        private final String[] keys;
+        private final Suggestion[] suggestions;
+        private final Map<String, Suggestion[]> shortPrefixes;
+
+        private Snapshot(String[] keys, Suggestion[] suggestions, Map<String, Suggestion[]> shortPrefixes) {
+            this.keys = keys;
+            this.suggestions = suggestions;
+            this.shortPrefixes = shortPrefixes;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.shoebank.nepalshop.service;
+
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Snowflake-style order numbers: a 63-bit id made of milliseconds since 2024,
+ * the instance's node id (10 bits) and a per-millisecond sequence (12 bits),
+ * written as "ORD" + 13 Crockford base32 characters + 1 check character.
+ *
+ * Ids from one instance come from a single atomic counter, so generation
+ * takes no lock. When the sequence runs out the counter simply moves into the
+ * next millisecond, and if the clock steps back it keeps counting from where
+ * it was; either way ids never repeat. Different instances differ in node id.
+ *
+ * The alphabet has no I, L, O or U, so numbers read aloud or copied by hand
+ * are hard to get wrong, and the check character catches any single wrong
+ * character and most swaps of neighbours.
+ */
+@Service
+public class SnowflakeOrderNumberGenerator implements OrderNumberGenerator {
+
+    private static final String PREFIX = "ORD";
+    private static final char[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    private static final int BODY_LENGTH = 13;
+
+    private static final long EPOCH = 1704067200000L; // 2024-01-01T00:00:00Z
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+
+    private final NodeIdService nodeIdService;
+
+    // (milliseconds since EPOCH << SEQUENCE_BITS) | sequence, of the last id handed out
+    private final AtomicLong last = new AtomicLong();
+
+    public SnowflakeOrderNumberGenerator(NodeIdService nodeIdService) {
+        this.nodeIdService = nodeIdService;
+    }
+
+    @Override
+    public String nextOrderNumber() {
+        return encode(nextId());
+    }
+
+    public long nextId() {
+        long node = nodeIdService.nodeId();
+        long stamp = last.updateAndGet(previous ->
+                Math.max(previous + 1, (System.currentTimeMillis() - EPOCH) << SEQUENCE_BITS));
+        long millis = stamp >>> SEQUENCE_BITS;
+        long sequence = stamp & ((1L << SEQUENCE_BITS) - 1);
+        return (millis << (NODE_BITS + SEQUENCE_BITS)) | (node << SEQUENCE_BITS) | sequence;
+    }
+
+    // Read-alikes map to the digits they stand for, as Crockford's alphabet intends
+    @Override
+    public String normalize(String orderNumber) {
+        String number = OrderNumberGenerator.super.normalize(orderNumber);
+        if (number == null || !number.startsWith(PREFIX)) {
+            return number;
+        }
+        return PREFIX + number.substring(PREFIX.length())
+                .replace('O', '0')
+                .replace('I', '1')
+                .replace('L', '1')
+                .replace("-", "");
+    }
+
+    static String encode(long id) {
+        char[] out = new char[PREFIX.length() + BODY_LENGTH + 1];
+        PREFIX.getChars(0, PREFIX.length(), out, 0);
+        // Fixed width, so numbers sort in the order they were issued
+        for (int i = BODY_LENGTH - 1; i >= 0; i--) {
+            out[PREFIX.length() + i] = ALPHABET[(int) (id & 31)];
+            id >>>= 5;
+        }
+        out[out.length - 1] = ALPHABET[checkValue(out, PREFIX.length(), BODY_LENGTH)];
+        return new String(out);
+    }
+
+    // Luhn mod 32 over the body characters
+    private static int checkValue(char[] chars, int offset, int length) {
+        int factor = 2;
+        int sum = 0;
+        for (int i = offset + length - 1; i >= offset; i--) {
+            int addend = factor * indexOf(chars[i]);
+            sum += addend / 32 + addend % 32;
+            factor = factor == 2 ? 1 : 2;
+        }
+        return (32 - sum % 32) % 32;
+    }
+
+    private static int indexOf(char c) {
+        for (int i = 0; i < ALPHABET.length; i++) {
+            if (ALPHABET[i] == c) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Not an order number character: " + c);
+    }
+}
@@ -0,0 +1,216 @@
+package com.shoebank.nepalshop.service;
+
+import com.shoebank.nepalshop.dto.ProductDTO;
+import com.shoebank.nepalshop.event.OrderPlacedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Short-lived stock holds for items sitting in carts.
+ *
+ * Each product has one atomic counter of units held across all carts; each
+ * cart session has its own map of product to held quantity and expiry. A hold
+ * is taken with a compare-and-set against the product's current stock, so
+ * two carts can never hold more than there is. Stock comes from the catalog
+ * index, which follows every stock change, so "available to sell" is stock
+ * minus held units and never reads the database.
+ *
+ * Holds are released when the line leaves the cart, when the cart is cleared
+ * or purged, when they expire, and after checkout, where the stock decrement
+ * has replaced them. The ledger lives in this instance's memory, like the
+ * carts it guards.
+ */
+@Service
+@Slf4j
+public class StockReservationService {
+
+    private final CatalogIndexService catalogIndexService;
+    private final ProductService productService;
+    private final long holdMillis;
+
+    // Units held per product, over all sessions
+    private final Map<Long, AtomicInteger> reserved = new ConcurrentHashMap<>();
+    // Per session; only ever modified inside compute() on its own key
+    private final Map<String, Map<Long, Hold>> holdsBySession = new ConcurrentHashMap<>();
+
+    public StockReservationService(CatalogIndexService catalogIndexService,
+                                   ProductService productService,
+                                   @Value("${app.stock.hold-minutes:15}") long holdMinutes) {
+        this.catalogIndexService = catalogIndexService;
+        this.productService = productService;
+        this.holdMillis = holdMinutes * 60_000;
+    }
+
+    // Units nobody holds yet
+    public int availableToSell(Long productId) {
+        return Math.max(0, stock(productId) - reserved(productId));
+    }
+
+    // What this session could have in its cart: the free units plus its own hold
+    public int availableFor(String sessionId, Long productId) {
+        Map<Long, Hold> holds = holdsBySession.get(sessionId);
+        Hold own = null;
+        if (holds != null) {
+            synchronized (holds) {
+                own = holds.get(productId);
+            }
+        }
+        return Math.max(0, stock(productId) - reserved(productId) + (own != null ? own.quantity : 0));
+    }
+
+    public void hold(String sessionId, Long productId, int quantity) {
+        holdAll(sessionId, Map.of(productId, quantity));
+    }
+
+    /**
+     * Set the session's holds to the given quantities (0 releases) and restart
+     * their expiry. Either every hold fits or none is changed.
+     */
+    public void holdAll(String sessionId, Map<Long, Integer> quantities) {
+        long expiresAt = System.currentTimeMillis() + holdMillis;
+        holdsBySession.compute(sessionId, (key, current) -> {
+            Map<Long, Hold> holds = current != null ? current : new HashMap<>();
+            Map<Long, Hold> previous = new HashMap<>();
+            synchronized (holds) {
+                try {
+                    for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+                        Long productId = entry.getKey();
+                        int quantity = Math.max(0, entry.getValue());
+                        Hold old = holds.get(productId);
+                        int delta = quantity - (old != null ? old.quantity : 0);
+                        if (delta > 0 && !tryReserve(productId, delta)) {
+                            throw new RuntimeException("Insufficient stock for " + name(productId)
+                                    + ". Available: " + (availableToSell(productId) + (old != null ? old.quantity : 0)));
+                        }
+                        previous.put(productId, old);
+                        if (delta < 0) {
+                            counter(productId).addAndGet(delta);
+                        }
+                        if (quantity > 0) {
+                            holds.put(productId, new Hold(quantity, expiresAt));
+                        } else {
+                            holds.remove(productId);
+                        }
+                    }
+                } catch (RuntimeException e) {
+                    // Put back what this call already changed
+                    previous.forEach((productId, old) -> {
+                        Hold now = holds.get(productId);
+                        counter(productId).addAndGet((old != null ? old.quantity : 0) - (now != null ? now.quantity : 0));
+                        if (old != null) {
+                            holds.put(productId, old);
+                        } else {
+                            holds.remove(productId);
+                        }
+                    });
+                    throw e;
+                }
+                return holds.isEmpty() ? null : holds;
+            }
+        });
+    }
+
+    public void release(String sessionId) {
+        Map<Long, Hold> holds = holdsBySession.remove(sessionId);
+        if (holds != null) {
+            synchronized (holds) {
+                holds.forEach((productId, hold) -> counter(productId).addAndGet(-hold.quantity));
+            }
+        }
+    }
+
+    // Checkout has taken the stock, which replaces the holds
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderPlaced(OrderPlacedEvent event) {
+        release(event.getSessionId());
+    }
+
+    @Scheduled(fixedDelayString = "${app.stock.hold-sweep-ms:30000}")
+    public void expireHolds() {
+        long now = System.currentTimeMillis();
+        int[] expired = {0};
+        for (String sessionId : holdsBySession.keySet()) {
+            holdsBySession.computeIfPresent(sessionId, (key, holds) -> {
+                synchronized (holds) {
+                    holds.entrySet().removeIf(entry -> {
+                        if (entry.getValue().expiresAt > now) {
+                            return false;
+                        }
+                        counter(entry.getKey()).addAndGet(-entry.getValue().quantity);
+                        expired[0]++;
+                        return true;
+                    });
+                    return holds.isEmpty() ? null : holds;
+                }
+            });
+        }
+        if (expired[0] > 0) {
+            log.debug("Released {} expired stock holds", expired[0]);
+        }
+    }
+
+    private boolean tryReserve(Long productId, int quantity) {
+        int stock = stock(productId);
+        AtomicInteger counter = counter(productId);
+        while (true) {
+            int held = counter.get();
+            if (held + quantity > stock) {
+                return false;
+            }
+            if (counter.compareAndSet(held, held + quantity)) {
+                return true;
+            }
+        }
+    }
+
+    private AtomicInteger counter(Long productId) {
+        return reserved.computeIfAbsent(productId, id -> new AtomicInteger());
+    }
+
+    private int reserved(Long productId) {
+        AtomicInteger counter = reserved.get(productId);
+        return counter != null ? counter.get() : 0;
+    }
+
+    // Unavailable products are not in the index and have nothing to sell
+    private int stock(Long productId) {
+        ProductDTO product = product(productId);
+        return product != null && Boolean.TRUE.equals(product.getIsAvailable()) && product.getStock() != null
+                ? product.getStock() : 0;
+    }
+
+    private String name(Long productId) {
+        ProductDTO product = product(productId);
+        return product != null ? product.getName() : "product " + productId;
+    }
+
+    private ProductDTO product(Long productId) {
+        if (catalogIndexService.isReady()) {
+            return catalogIndexService.get(productId);
+        }
+        // Only until the index has loaded at startup
+        try {
+            return productService.getProductById(productId);
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static final class Hold {
+        private final int quantity;
+        private final long expiresAt;
+
+        private Hold(int quantity, long expiresAt) {
+            this.quantity = quantity;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
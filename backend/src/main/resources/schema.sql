@@ -12,3 +12,34 @@ CREATE TABLE IF NOT EXISTS product_tags (
     tag VARCHAR(255),
     CONSTRAINT fk_product_tags_product FOREIGN KEY (product_id) REFERENCES products(id)
 );
+
+-- Node id leases for order number generation, one row per id in use
+CREATE TABLE IF NOT EXISTS order_number_nodes (
+    node_id INT NOT NULL PRIMARY KEY,
+    owner VARCHAR(64) NOT NULL,
+    heartbeat_at TIMESTAMP NOT NULL
+);
+
+-- Transactional outbox: side effects queued with the change that caused them, one row per handler
+CREATE TABLE IF NOT EXISTS outbox_events (
+    id BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    event_type VARCHAR(64) NOT NULL,
+    handler VARCHAR(64) NOT NULL,
+    payload TEXT NOT NULL,
+    attempts INT NOT NULL DEFAULT 0,
+    next_attempt_at DATETIME(3) NOT NULL,
+    claim_token VARCHAR(36),
+    dead BOOLEAN NOT NULL DEFAULT FALSE,
+    last_error VARCHAR(1000),
+    created_at DATETIME(3) NOT NULL,
+    INDEX idx_outbox_due (dead, next_attempt_at)
+);
+
+-- Idempotency-Key claims for order creation and the order each one produced
+CREATE TABLE IF NOT EXISTS idempotency_keys (
+    idem_key VARCHAR(128) NOT NULL PRIMARY KEY,
+    request_hash CHAR(64) NOT NULL,
+    response TEXT,
+    created_at DATETIME(3) NOT NULL,
+    INDEX idx_idempotency_created (created_at)
+);
@@ -0,0 +1,119 @@
+package com.shoebank.nepalshop.repository;
+
+import com.shoebank.nepalshop.model.Category;
+import com.shoebank.nepalshop.model.Product;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Statement counts for product listings: a page must cost the same number of
+ * statements however many rows it holds (category joined, images and tags
+ * batch-loaded), so an N+1 regression shows up as a failing count.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+class ProductRepositoryTest {
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        Category shoes = categoryRepository.save(Category.builder()
+                .name("Shoes").slug("shoes").displayOrder(1).isActive(true).build());
+        Category bags = categoryRepository.save(Category.builder()
+                .name("Bags").slug("bags").displayOrder(2).isActive(true).build());
+        for (int i = 0; i < 30; i++) {
+            productRepository.save(Product.builder()
+                    .name("Product " + i)
+                    .price(BigDecimal.valueOf(100 + i))
+                    .stock(5)
+                    .category(i % 2 == 0 ? shoes : bags)
+                    .images(List.of("a" + i + ".jpg", "b" + i + ".jpg"))
+                    .tags(List.of("tag" + i % 3, "all"))
+                    .isAvailable(true)
+                    .isFeatured(i % 3 == 0)
+                    .build());
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void filterPageLoadsInFixedNumberOfStatements() {
+        // page rows + count + one IN query each for images and tags
+        assertThat(statementsForFilterPage(12)).isEqualTo(4);
+        entityManager.clear();
+        statistics.clear();
+        assertThat(statementsForFilterPage(24)).isEqualTo(4);
+    }
+
+    @Test
+    void featuredListLoadsInFixedNumberOfStatements() {
+        List<Product> featured = productRepository.findByIsFeaturedTrueAndIsAvailableTrue();
+        featured.forEach(this::touch);
+
+        assertThat(featured).hasSize(10);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+    }
+
+    @Test
+    void productByIdLoadsCategoryWithoutExtraStatement() {
+        Long id = productRepository.findAll().get(0).getId();
+        entityManager.clear();
+        statistics.clear();
+
+        Product product = productRepository.findWithCategoryById(id).orElseThrow();
+        product.getCategory().getName();
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    private long statementsForFilterPage(int size) {
+        Page<Product> page = productRepository.findByFilters(null, null, null, null, null, null, null, null,
+                PageRequest.of(0, size, Sort.by(Sort.Direction.DESC, "createdAt")));
+        page.getContent().forEach(this::touch);
+
+        assertThat(page.getContent()).hasSize(size);
+        assertThat(page.getTotalElements()).isEqualTo(30);
+        return statistics.getPrepareStatementCount();
+    }
+
+    // Everything ProductService.convertToDTO reads
+    private void touch(Product product) {
+        product.getCategory().getName();
+        product.getImages().size();
+        product.getTags().size();
+    }
+}
@@ -0,0 +1,355 @@
+package com.shoebank.nepalshop.repository;
+
+import com.shoebank.nepalshop.model.Category;
+import com.shoebank.nepalshop.model.NodeScopedIdGenerator;
+import com.shoebank.nepalshop.model.Order;
+import com.shoebank.nepalshop.model.Product;
+import jakarta.persistence.CollectionTable;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.metamodel.EntityType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Query plans for ProductRepository and OrderRepository on the embedded
+ * database: every declared index must exist with its columns in order, and
+ * every statement a repository method runs is EXPLAINed and must not scan a
+ * whole table, apart from the scans in {@link #EXPECTED_SCANS}.
+ *
+ * H2 plans stand in for MySQL's, so this catches a query no index can serve
+ * but not MySQL's own choices. The expected scans are all plans MySQL serves
+ * from idx_orders_created and H2 does not: reading an index backwards up to a
+ * LIMIT, and a range over the keyset OR. Which index MySQL picks, whether it
+ * avoids a filesort, and the LOWER(tag) comparison that can not use
+ * idx_product_tags_tag still need EXPLAIN on MySQL when those queries change.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+class QueryPlanTest {
+
+    // Statements captured on the calling thread while a repository method runs
+    private static final ThreadLocal<List<Captured>> CAPTURED = new ThreadLocal<>();
+
+    private static final Pattern TABLE_SCAN = Pattern.compile("(\\w+)\\.tableScan");
+
+    // Repository method -> tables H2 scans for it, each served by an index on MySQL
+    private static final Map<String, Set<String>> EXPECTED_SCANS = Map.of(
+            // Newest orders without a filter: MySQL reads idx_orders_created backwards and stops at the limit
+            "findAllByOrderByCreatedAtDesc", Set.of("orders"),
+            "findAllByOrderByCreatedAtDescIdDesc", Set.of("orders"),
+            // created_at < ? OR (created_at = ? AND id < ?) is a range on idx_orders_created for MySQL only
+            "findPageBefore", Set.of("orders"));
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Category shoes;
+    private Long productId;
+    private LocalDateTime now;
+
+    @BeforeEach
+    void setUp() {
+        NodeScopedIdGenerator.useNodeSource(() -> 0);
+        now = LocalDateTime.now();
+
+        shoes = categoryRepository.save(Category.builder()
+                .name("Shoes").slug("shoes").displayOrder(1).isActive(true).build());
+        Category bags = categoryRepository.save(Category.builder()
+                .name("Bags").slug("bags").displayOrder(2).isActive(true).build());
+        for (int i = 0; i < 200; i++) {
+            productId = productRepository.save(Product.builder()
+                    .name("Product " + i)
+                    .description("Description " + i)
+                    .price(BigDecimal.valueOf(100 + i))
+                    .stock(5)
+                    .brand("brand" + i % 7)
+                    .category(i % 2 == 0 ? shoes : bags)
+                    .images(List.of("p" + i + ".jpg"))
+                    .tags(List.of("tag" + i % 10))
+                    .isAvailable(i % 20 != 0)
+                    .isFeatured(i % 25 == 0)
+                    .build()).getId();
+        }
+
+        Order.OrderStatus[] statuses = Order.OrderStatus.values();
+        Order.PaymentStatus[] payments = Order.PaymentStatus.values();
+        for (int i = 0; i < 200; i++) {
+            orderRepository.save(Order.builder()
+                    .orderNumber("ORD" + i)
+                    .customerName("Customer " + i)
+                    .customerPhone("98000" + String.format("%05d", i % 50))
+                    .deliveryAddress("Street " + i)
+                    .subtotal(BigDecimal.TEN)
+                    .totalAmount(BigDecimal.TEN)
+                    .paymentStatus(payments[i % payments.length])
+                    .orderStatus(statuses[i % statuses.length])
+                    .orderType(i % 3 == 0 ? "FOOD" : "SHOES")
+                    .build());
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void everyDeclaredIndexExists() {
+        Map<String, List<String>> declared = new TreeMap<>();
+        for (EntityType<?> entity : entityManager.getMetamodel().getEntities()) {
+            Class<?> type = entity.getJavaType();
+            Table table = type.getAnnotation(Table.class);
+            if (table != null) {
+                addIndexes(declared, table.name(), table.indexes());
+            }
+            for (Field field : type.getDeclaredFields()) {
+                CollectionTable collection = field.getAnnotation(CollectionTable.class);
+                if (collection != null) {
+                    addIndexes(declared, collection.name(), collection.indexes());
+                }
+            }
+        }
+
+        assertThat(declared).isNotEmpty();
+        declared.forEach((key, columns) -> {
+            String[] tableAndIndex = key.split("\\.");
+            List<String> actual = jdbcTemplate.queryForList(
+                    "SELECT column_name FROM information_schema.index_columns "
+                            + "WHERE table_name = ? AND index_name = ? ORDER BY ordinal_position",
+                    String.class, tableAndIndex[0], tableAndIndex[1]);
+            assertThat(actual).as("columns of index %s", key).isEqualTo(columns);
+        });
+    }
+
+    @Test
+    void repositoryQueriesAvoidFullScans() {
+        Map<String, Runnable> calls = new LinkedHashMap<>();
+        PageRequest page = PageRequest.of(0, 12, Sort.by(Sort.Direction.DESC, "createdAt"));
+        PageRequest first = PageRequest.of(0, 13);
+        Long categoryId = shoes.getId();
+
+        calls.put("findByCategoryIdAndIsAvailableTrue",
+                () -> productRepository.findByCategoryIdAndIsAvailableTrue(categoryId, page));
+        calls.put("findByIsAvailableTrue", () -> {
+            productRepository.findByIsAvailableTrue(page);
+            productRepository.findByIsAvailableTrue();
+        });
+        calls.put("findByIsFeaturedTrueAndIsAvailableTrue", productRepository::findByIsFeaturedTrueAndIsAvailableTrue);
+        calls.put("findWithCategoryByIdIn", () -> productRepository.findWithCategoryByIdIn(List.of(productId)));
+        calls.put("findWithCategoryById", () -> productRepository.findWithCategoryById(productId));
+        calls.put("searchProducts", () -> productRepository.searchProducts("product 1", page));
+        calls.put("searchProductsByCategory",
+                () -> productRepository.searchProductsByCategory(categoryId, "product 1", page));
+        calls.put("findByFilters", () -> {
+            productRepository.findByFilters(null, null, null, null, null, null, null, null, page);
+            productRepository.findByFilters(categoryId, null, BigDecimal.valueOf(120), BigDecimal.valueOf(180),
+                    "brand1", null, null, "tag1", page);
+        });
+        calls.put("findByFiltersBefore", () -> {
+            productRepository.findByFiltersBefore(null, null, null, null, null, null, null, null, null, null, first);
+            productRepository.findByFiltersBefore(categoryId, null, null, null, null, null, null, null,
+                    now, productId, first);
+        });
+        calls.put("findByCategorySlugAndIsAvailableTrue",
+                () -> productRepository.findByCategorySlugAndIsAvailableTrue("shoes"));
+        calls.put("countByCategoryId", () -> productRepository.countByCategoryId(categoryId));
+        calls.put("findAllCategoryIds", productRepository::findAllCategoryIds);
+        calls.put("findCategoryIdsByIdIn", () -> productRepository.findCategoryIdsByIdIn(List.of(productId)));
+        calls.put("decrementStock", () -> productRepository.decrementStock(productId, 1));
+        calls.put("findStockByIdIn", () -> productRepository.findStockByIdIn(List.of(productId)));
+
+        calls.put("findByOrderNumber", () -> orderRepository.findByOrderNumber("ORD7"));
+        calls.put("findByOrderStatusOrderByCreatedAtDesc",
+                () -> orderRepository.findByOrderStatusOrderByCreatedAtDesc(Order.OrderStatus.PENDING, page));
+        calls.put("findAllByOrderByCreatedAtDesc", () -> orderRepository.findAllByOrderByCreatedAtDesc(page));
+        calls.put("findAllByOrderByCreatedAtDescIdDesc", () -> orderRepository.findAllByOrderByCreatedAtDescIdDesc(first));
+        calls.put("findByOrderStatusOrderByCreatedAtDescIdDesc",
+                () -> orderRepository.findByOrderStatusOrderByCreatedAtDescIdDesc(Order.OrderStatus.PENDING, first));
+        calls.put("findPageBefore", () -> orderRepository.findPageBefore(now, Long.MAX_VALUE, first));
+        calls.put("findPageBeforeByStatus",
+                () -> orderRepository.findPageBeforeByStatus(Order.OrderStatus.PENDING, now, Long.MAX_VALUE, first));
+        calls.put("findByCustomerPhoneOrderByCreatedAtDesc",
+                () -> orderRepository.findByCustomerPhoneOrderByCreatedAtDesc("9800000007"));
+        calls.put("findOrdersBetweenDates",
+                () -> orderRepository.findOrdersBetweenDates(now.minusDays(1), now.plusDays(1)));
+        calls.put("countByOrderStatus", () -> orderRepository.countByOrderStatus(Order.OrderStatus.PENDING));
+        calls.put("getTotalRevenueBetweenDates",
+                () -> orderRepository.getTotalRevenueBetweenDates(now.minusDays(1), now.plusDays(1)));
+        calls.put("findByOrderTypeAndOrderStatusIn", () -> orderRepository.findByOrderTypeAndOrderStatusIn("FOOD",
+                List.of(Order.OrderStatus.PENDING, Order.OrderStatus.CONFIRMED)));
+
+        // A method added to either repository must be added here too
+        Set<String> declared = new TreeSet<>();
+        for (Class<?> repository : List.of(ProductRepository.class, OrderRepository.class)) {
+            Arrays.stream(repository.getDeclaredMethods()).map(Method::getName).forEach(declared::add);
+        }
+        assertThat(new TreeSet<>(calls.keySet())).isEqualTo(declared);
+
+        Map<String, Set<String>> scans = new TreeMap<>();
+        calls.forEach((name, call) -> {
+            List<Captured> statements = capture(call);
+            assertThat(statements).as("statements run by %s", name).isNotEmpty();
+            for (Captured statement : statements) {
+                Matcher matcher = TABLE_SCAN.matcher(explain(statement));
+                while (matcher.find()) {
+                    scans.computeIfAbsent(name, key -> new TreeSet<>()).add(matcher.group(1).toLowerCase());
+                }
+            }
+        });
+        assertThat(scans).isEqualTo(EXPECTED_SCANS);
+    }
+
+    private static void addIndexes(Map<String, List<String>> declared, String table, Index[] indexes) {
+        for (Index index : indexes) {
+            declared.put(table + "." + index.name(), Arrays.stream(index.columnList().split(","))
+                    .map(String::trim)
+                    .collect(Collectors.toList()));
+        }
+    }
+
+    private List<Captured> capture(Runnable call) {
+        CAPTURED.set(new ArrayList<>());
+        try {
+            call.run();
+            entityManager.flush();
+            return CAPTURED.get();
+        } finally {
+            CAPTURED.remove();
+            entityManager.clear();
+        }
+    }
+
+    private String explain(Captured statement) {
+        return jdbcTemplate.execute((Connection connection) -> {
+            try (PreparedStatement explain = connection.prepareStatement("EXPLAIN " + statement.sql)) {
+                for (Map.Entry<Integer, Object[]> parameter : statement.parameters.entrySet()) {
+                    Object[] call = parameter.getValue();
+                    ((Method) call[0]).invoke(explain, (Object[]) call[1]);
+                }
+                try (ResultSet plan = explain.executeQuery()) {
+                    StringBuilder text = new StringBuilder();
+                    while (plan.next()) {
+                        text.append(plan.getString(1)).append('\n');
+                    }
+                    return text.toString();
+                }
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    private static final class Captured {
+        private final String sql;
+        private final Map<Integer, Object[]> parameters;
+
+        private Captured(String sql, Map<Integer, Object[]> parameters) {
+            this.sql = sql;
+            this.parameters = new TreeMap<>(parameters);
+        }
+    }
+
+    @TestConfiguration
+    static class CapturingDataSourceConfig {
+
+        @Bean
+        static BeanPostProcessor capturingDataSource() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof DataSource dataSource
+                            ? proxy(DataSource.class, (proxy, method, args) -> {
+                                Object result = invoke(method, dataSource, args);
+                                return result instanceof Connection connection ? capturing(connection) : result;
+                            })
+                            : bean;
+                }
+            };
+        }
+
+        private static Connection capturing(Connection connection) {
+            return proxy(Connection.class, (proxy, method, args) -> {
+                Object result = invoke(method, connection, args);
+                if (result instanceof PreparedStatement statement && method.getName().equals("prepareStatement")) {
+                    return recording(statement, (String) args[0]);
+                }
+                return result;
+            });
+        }
+
+        // Remembers the parameters set on a statement and captures them with its SQL when it runs
+        private static PreparedStatement recording(PreparedStatement statement, String sql) {
+            Map<Integer, Object[]> parameters = new TreeMap<>();
+            return proxy(PreparedStatement.class, (proxy, method, args) -> {
+                String name = method.getName();
+                if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer index) {
+                    parameters.put(index, new Object[] {method, args.clone()});
+                } else if (name.equals("clearParameters")) {
+                    parameters.clear();
+                } else if (name.startsWith("execute") && CAPTURED.get() != null) {
+                    CAPTURED.get().add(new Captured(sql, parameters));
+                }
+                return invoke(method, statement, args);
+            });
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> T proxy(Class<T> type, java.lang.reflect.InvocationHandler handler) {
+            return (T) Proxy.newProxyInstance(QueryPlanTest.class.getClassLoader(), new Class<?>[] {type}, handler);
+        }
+
+        private static Object invoke(Method method, Object target, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.shoebank.nepalshop.service;
+
+import com.shoebank.nepalshop.dto.AddToCartRequest;
+import com.shoebank.nepalshop.dto.CreateOrderRequest;
+import com.shoebank.nepalshop.dto.ProductCreateDTO;
+import com.shoebank.nepalshop.repository.CategoryRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Database round trips per checkout, counted at the JDBC layer on the calling
+ * thread: every statement execution (a batch counts once), commit and
+ * rollback. A checkout must cost the same however many lines the cart has.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class CheckoutRoundTripTest {
+
+    // Cart, its lines, their products, categories and images; outbox, order
+    // and item inserts; the stock batch and its read-back; commit
+    private static final int CHECKOUT_ROUND_TRIPS = 11;
+
+    private static final Set<String> ROUND_TRIP_METHODS =
+            Set.of("execute", "executeQuery", "executeUpdate", "executeBatch", "executeLargeUpdate",
+                    "executeLargeBatch", "commit", "rollback");
+
+    // Only the thread under test counts; scheduled flushes and listeners run elsewhere
+    private static final ThreadLocal<int[]> ROUND_TRIPS = new ThreadLocal<>();
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private CartStore cartStore;
+
+    @Autowired
+    private CartSessionService cartSessionService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Test
+    void checkoutRoundTripsDoNotGrowWithCartSize() {
+        Long categoryId = categoryRepository.findBySlug("shoes").orElseThrow().getId();
+        List<Long> productIds = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            productIds.add(productService.createProduct(ProductCreateDTO.builder()
+                    .name("Round trip " + i)
+                    .price(BigDecimal.TEN)
+                    .stock(100)
+                    .categoryId(categoryId)
+                    .images(List.of("shoe" + i + ".jpg"))
+                    .isAvailable(true)
+                    .isFeatured(false)
+                    .build()).getId());
+        }
+
+        List<Integer> roundTrips = new ArrayList<>();
+        for (int lines : new int[] {1, 5, 20}) {
+            roundTrips.add(roundTripsForCheckout(productIds.subList(0, lines)));
+        }
+
+        assertThat(roundTrips).containsExactly(CHECKOUT_ROUND_TRIPS, CHECKOUT_ROUND_TRIPS, CHECKOUT_ROUND_TRIPS);
+    }
+
+    private int roundTripsForCheckout(List<Long> productIds) {
+        String sessionId = cartSessionService.issue();
+        for (Long productId : productIds) {
+            cartService.addToCart(sessionId, AddToCartRequest.builder()
+                    .productId(productId)
+                    .quantity(1)
+                    .build());
+        }
+        // The cart write-behind is not part of checkout
+        cartStore.flushAll();
+
+        ROUND_TRIPS.set(new int[1]);
+        try {
+            orderService.createOrder(CreateOrderRequest.builder()
+                    .sessionId(sessionId)
+                    .customerName("Round Trip")
+                    .customerPhone("9800000000")
+                    .deliveryAddress("Street 1")
+                    .deliveryCity("Kathmandu")
+                    .paymentMethod("COD")
+                    .build());
+            return ROUND_TRIPS.get()[0];
+        } finally {
+            ROUND_TRIPS.remove();
+        }
+    }
+
+    @TestConfiguration
+    static class CountingDataSourceConfig {
+
+        @Bean
+        static BeanPostProcessor countingDataSource() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof DataSource dataSource ? counting(dataSource, DataSource.class) : bean;
+                }
+            };
+        }
+
+        // Proxies the connections and statements handed out by target, counting round trips on each
+        @SuppressWarnings("unchecked")
+        private static <T> T counting(T target, Class<T> type) {
+            return (T) Proxy.newProxyInstance(CheckoutRoundTripTest.class.getClassLoader(), new Class<?>[] {type},
+                    (proxy, method, args) -> {
+                        int[] count = ROUND_TRIPS.get();
+                        if (count != null && !(target instanceof DataSource)
+                                && ROUND_TRIP_METHODS.contains(method.getName())) {
+                            count[0]++;
+                        }
+                        Object result = invoke(method, target, args);
+                        if (result instanceof Connection connection) {
+                            return counting(connection, Connection.class);
+                        }
+                        if (result instanceof Statement statement && target instanceof Connection) {
+                            return counting(statement, statementType(method));
+                        }
+                        return result;
+                    });
+        }
+
+        @SuppressWarnings("unchecked")
+        private static Class<Statement> statementType(Method method) {
+            return (Class<Statement>) method.getReturnType();
+        }
+
+        private static Object invoke(Method method, Object target, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package com.shoebank.nepalshop.service;
+
+import com.shoebank.nepalshop.dto.CartOperationDTO;
+import com.shoebank.nepalshop.dto.CreateOrderRequest;
+import com.shoebank.nepalshop.dto.ProductCreateDTO;
+import com.shoebank.nepalshop.dto.ProductDTO;
+import com.shoebank.nepalshop.repository.CategoryRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Concurrent checkouts against the embedded database: more shoppers than
+ * units must sell exactly the stock there is, thousands of checkouts must
+ * neither oversell nor lose a decrement, carts that list the same products in
+ * opposite orders must not deadlock, and checkouts that do not compete for
+ * stock must get through faster on several threads than on one.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Slf4j
+class OrderServiceStressTest {
+
+    private static final int THREADS = 8;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private CartStore cartStore;
+
+    @Autowired
+    private CartSessionService cartSessionService;
+
+    @Autowired
+    private StockReservationService stockReservationService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void lastUnitsAreSoldExactlyOnce() throws InterruptedException {
+        ProductDTO product = createProduct("Last pair", 5);
+        List<String> sessions = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            sessions.add(cart(add(product, 1)));
+        }
+
+        Outcome outcome = checkOut(sessions, THREADS);
+
+        assertThat(outcome.placed).hasValue(5);
+        assertThat(outcome.insufficient).hasValue(35);
+        assertThat(outcome.otherErrors).isEmpty();
+        assertThat(stock(product)).isZero();
+        assertThat(orders(product)).isEqualTo(5);
+    }
+
+    @Test
+    void thousandsOfCheckoutsNeitherOversellNorLoseUpdates() throws InterruptedException {
+        ProductDTO scarce = createProduct("Limited edition", 500);
+        List<ProductDTO> plenty = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            plenty.add(createProduct("Everyday " + i, 100_000));
+        }
+        List<String> sessions = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            sessions.add(cart(add(plenty.get(i % plenty.size()), 1 + i % 3), add(scarce, 1)));
+        }
+
+        Outcome outcome = checkOut(sessions, THREADS);
+
+        assertThat(outcome.otherErrors).isEmpty();
+        assertThat(outcome.placed).hasValue(500);
+        assertThat(outcome.insufficient).hasValue(1500);
+        assertThat(stock(scarce)).isZero();
+        assertThat(orders(scarce)).isEqualTo(500);
+        // Every unit that left the shelf is on an order, and only those did
+        for (ProductDTO product : plenty) {
+            assertThat(stock(product)).isEqualTo(100_000 - unitsOrdered(product));
+        }
+    }
+
+    @Test
+    void uncontendedCheckoutThroughputScalesWithThreads() throws InterruptedException {
+        List<ProductDTO> products = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            products.add(createProduct("Throughput " + i, 100_000));
+        }
+        // Warm up so the single-threaded run is not paying for class loading and JIT
+        checkOut(carts(products, 200), THREADS);
+
+        Outcome single = checkOut(carts(products, 400), 1);
+        Outcome parallel = checkOut(carts(products, 400), THREADS);
+
+        log.info("Checkout throughput: {} orders/s on 1 thread, {} orders/s on {} threads",
+                Math.round(single.throughput()), Math.round(parallel.throughput()), THREADS);
+        assertThat(single.placed).hasValue(400);
+        assertThat(parallel.placed).hasValue(400);
+        // The margin is loose: the test pool has 5 connections and the build machine may be busy
+        assertThat(parallel.throughput()).isGreaterThan(single.throughput() * 1.2);
+    }
+
+    @Test
+    void reverseOrderedCartsDoNotDeadlock() throws InterruptedException {
+        ProductDTO plenty = createProduct("Plenty", 1000);
+        ProductDTO scarce = createProduct("Scarce", 30);
+        List<String> sessions = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            // Half the carts list the scarce product first, the other half last
+            sessions.add(i % 2 == 0
+                    ? cart(add(plenty, 1), add(scarce, 1))
+                    : cart(add(scarce, 1), add(plenty, 1)));
+        }
+
+        Outcome outcome = checkOut(sessions, THREADS);
+
+        assertThat(outcome.placed).hasValue(30);
+        assertThat(outcome.insufficient).hasValue(90);
+        assertThat(outcome.otherErrors).isEmpty();
+        assertThat(stock(scarce)).isZero();
+        assertThat(stock(plenty)).isEqualTo(970);
+        assertThat(orders(scarce)).isEqualTo(30);
+        assertThat(orders(plenty)).isEqualTo(30);
+    }
+
+    private Outcome checkOut(List<String> sessions, int threads) throws InterruptedException {
+        // Write the carts up front so checkouts only contend on stock
+        cartStore.flushAll();
+
+        Outcome outcome = new Outcome();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        long startedAt;
+        try {
+            for (String sessionId : sessions) {
+                pool.submit(() -> {
+                    start.await();
+                    try {
+                        orderService.createOrder(CreateOrderRequest.builder()
+                                .sessionId(sessionId)
+                                .customerName("Stress")
+                                .customerPhone("9800000000")
+                                .deliveryAddress("Street 1")
+                                .deliveryCity("Kathmandu")
+                                .paymentMethod("COD")
+                                .build());
+                        outcome.placed.incrementAndGet();
+                    } catch (RuntimeException e) {
+                        if (String.valueOf(e.getMessage()).startsWith("Insufficient stock")) {
+                            outcome.insufficient.incrementAndGet();
+                        } else {
+                            outcome.otherErrors.merge(String.valueOf(e.getMessage()), 1, Integer::sum);
+                        }
+                    }
+                    return null;
+                });
+            }
+            startedAt = System.nanoTime();
+            start.countDown();
+        } finally {
+            pool.shutdown();
+        }
+        assertThat(pool.awaitTermination(2, TimeUnit.MINUTES)).isTrue();
+        outcome.nanos = System.nanoTime() - startedAt;
+        return outcome;
+    }
+
+    private ProductDTO createProduct(String name, int stock) {
+        Long categoryId = categoryRepository.findBySlug("shoes").orElseThrow().getId();
+        return productService.createProduct(ProductCreateDTO.builder()
+                .name(name)
+                .price(BigDecimal.TEN)
+                .stock(stock)
+                .categoryId(categoryId)
+                .isAvailable(true)
+                .isFeatured(false)
+                .build());
+    }
+
+    private CartOperationDTO add(ProductDTO product, int quantity) {
+        return CartOperationDTO.builder()
+                .type(CartOperationDTO.Type.ADD)
+                .productId(product.getId())
+                .quantity(quantity)
+                .build();
+    }
+
+    // One unit of a product per cart, going round the products
+    private List<String> carts(List<ProductDTO> products, int count) {
+        List<String> sessions = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            sessions.add(cart(add(products.get(i % products.size()), 1)));
+        }
+        return sessions;
+    }
+
+    // More carts than units: drop each cart's holds so the next one can be filled
+    private String cart(CartOperationDTO... operations) {
+        String sessionId = cartSessionService.issue();
+        cartService.applyBatch(sessionId, List.of(operations));
+        stockReservationService.release(sessionId);
+        return sessionId;
+    }
+
+    private int stock(ProductDTO product) {
+        return jdbcTemplate.queryForObject("SELECT stock FROM products WHERE id = ?", Integer.class, product.getId());
+    }
+
+    private long orders(ProductDTO product) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(DISTINCT order_id) FROM order_items WHERE product_id = ?",
+                Long.class, product.getId());
+    }
+
+    private long unitsOrdered(ProductDTO product) {
+        return jdbcTemplate.queryForObject("SELECT COALESCE(SUM(quantity), 0) FROM order_items WHERE product_id = ?",
+                Long.class, product.getId());
+    }
+
+    private static final class Outcome {
+        private final AtomicInteger placed = new AtomicInteger();
+        private final AtomicInteger insufficient = new AtomicInteger();
+        private final Map<String, Integer> otherErrors = new ConcurrentHashMap<>();
+        private long nanos;
+
+        // Orders placed per second of wall-clock time
+        private double throughput() {
+            return placed.get() * 1e9 / nanos;
+        }
+    }
+}
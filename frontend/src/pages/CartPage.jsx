@@ -7,7 +7,7 @@ import useCartStore from '../store/cartStore';
 
 function CartPage() {
     const navigate = useNavigate();
-    const { cart, loading, fetchCart, updateQuantity, removeItem } = useCartStore();
+    const { cart, loading, fetchCart, updateQuantity, removeItem, flushPending } = useCartStore();
 
     useEffect(() => {
         fetchCart();
@@ -27,6 +27,13 @@ function CartPage() {
         toast.success('Item removed from cart');
     };
 
+    const handleCheckout = async (event) => {
+        event.preventDefault();
+        // Checkout builds the order from the server's cart, so queued changes must land first
+        await flushPending();
+        navigate('/checkout');
+    };
+
     if (loading && !cart) {
         return (
             <div className="min-h-screen flex items-center justify-center pt-20">
@@ -195,6 +202,7 @@ function CartPage() {
 
                                 <Link
                                     to="/checkout"
+                                    onClick={handleCheckout}
                                     className="btn-primary w-full mt-6 flex items-center justify-center space-x-2"
                                 >
                                     <span>Proceed to Checkout</span>
@@ -1,4 +1,4 @@
-import { useState, useEffect } from 'react';
+import { useState, useEffect, useRef } from 'react';
 import { useNavigate } from 'react-router-dom';
 import { ArrowLeft, CreditCard, MapPin, User, Phone, Mail } from 'lucide-react';
 import toast from 'react-hot-toast';
@@ -6,10 +6,17 @@ import LoadingSpinner from '../components/LoadingSpinner';
 import useCartStore from '../store/cartStore';
 import { ordersApi } from '../services/api';
 
+const ORDER_ATTEMPTS = 3;
+
+const newIdempotencyKey = () =>
+    window.crypto?.randomUUID?.() || `${Date.now().toString(36)}-${Math.random().toString(36).slice(2)}`;
+
 function CheckoutPage() {
     const navigate = useNavigate();
     const { cart, fetchCart } = useCartStore();
     const [loading, setLoading] = useState(false);
+    // One key per order attempt, kept across network retries
+    const idempotencyKey = useRef(null);
     const [formData, setFormData] = useState({
         customerName: '',
         customerEmail: '',
@@ -70,12 +77,30 @@ function CheckoutPage() {
 
         setLoading(true);
 
+        if (!idempotencyKey.current) {
+            idempotencyKey.current = newIdempotencyKey();
+        }
+
         try {
             const sessionId = localStorage.getItem('sessionId');
-            const response = await ordersApi.create({
-                ...formData,
-                sessionId
-            });
+            let response;
+            for (let attempt = 1; ; attempt++) {
+                try {
+                    response = await ordersApi.create({
+                        ...formData,
+                        sessionId
+                    }, idempotencyKey.current);
+                    break;
+                } catch (error) {
+                    // No answer, a server error, or the first try still running (409): the order may or
+                    // may not exist, and the same key makes asking again safe
+                    const status = error.response?.status;
+                    if ((status < 500 && status !== 409) || attempt >= ORDER_ATTEMPTS) {
+                        throw error;
+                    }
+                    await new Promise((resolve) => setTimeout(resolve, 1000 * attempt));
+                }
+            }
 
             if (response.data.success) {
                 const orderNumber = response.data.data.orderNumber;
@@ -85,6 +110,12 @@ function CheckoutPage() {
                 throw new Error(response.data.message);
             }
         } catch (error) {
+            // The server turned the order down, so nothing was placed; a new attempt gets a new key.
+            // A 409 means an earlier try may still place the order, so its key is kept.
+            const status = error.response?.status;
+            if (status < 500 && status !== 409) {
+                idempotencyKey.current = null;
+            }
             toast.error(error.response?.data?.message || 'Failed to place order');
         } finally {
             setLoading(false);
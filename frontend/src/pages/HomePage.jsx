@@ -3,7 +3,7 @@ import { Link } from 'react-router-dom';
 import { ArrowRight, Truck, Shield, Zap, TrendingUp } from 'lucide-react';
 import ProductCard from '../components/ProductCard';
 import LoadingSpinner from '../components/LoadingSpinner';
-import { categoriesApi, productsApi } from '../services/api';
+import { storefrontApi } from '../services/api';
 
 const categoryMeta = {
     shoes: {
@@ -71,12 +71,10 @@ function HomePage() {
     useEffect(() => {
         const fetchData = async () => {
             try {
-                const [categoriesRes, productsRes] = await Promise.all([
-                    categoriesApi.getAll(),
-                    productsApi.getFeatured()
-                ]);
-                setCategories(categoriesRes.data.data || []);
-                setFeaturedProducts(productsRes.data.data || []);
+                const res = await storefrontApi.getHome();
+                const home = res.data.data || {};
+                setCategories(home.categories || []);
+                setFeaturedProducts(home.featuredProducts || []);
             } catch (error) {
                 console.error('Error fetching data:', error);
             } finally {
@@ -10,14 +10,31 @@ const api = axios.create({
     },
 });
 
-// Add session ID to all requests
-api.interceptors.request.use((config) => {
-    let sessionId = localStorage.getItem('sessionId');
-    if (!sessionId) {
-        sessionId = 'session_' + Math.random().toString(36).substring(2, 15);
-        localStorage.setItem('sessionId', sessionId);
+// Session IDs are issued (and signed) by the server; ids from older builds are replaced
+let sessionRequest = null;
+const getSessionId = () => {
+    const stored = localStorage.getItem('sessionId');
+    if (stored && stored.includes('.')) {
+        return Promise.resolve(stored);
+    }
+    if (!sessionRequest) {
+        sessionRequest = axios.post(`${API_BASE_URL}/cart/session`)
+            .then((response) => {
+                localStorage.setItem('sessionId', response.data.data);
+                return response.data.data;
+            })
+            .finally(() => {
+                sessionRequest = null;
+            });
+    }
+    return sessionRequest;
+};
+
+// Add session ID to cart and order requests
+api.interceptors.request.use(async (config) => {
+    if (config.url.startsWith('/cart') || config.url.startsWith('/orders')) {
+        config.headers['X-Session-Id'] = await getSessionId();
     }
-    config.headers['X-Session-Id'] = sessionId;
 
     // Add auth token for admin routes, auth verification, and file uploads
     const token = localStorage.getItem('adminToken');
@@ -60,6 +77,11 @@ export const productsApi = {
     getFeatured: () => api.get('/products/featured'),
 };
 
+// Storefront API
+export const storefrontApi = {
+    getHome: () => api.get('/storefront/home'),
+};
+
 // Cart API
 export const cartApi = {
     get: () => api.get('/cart'),
@@ -67,11 +89,15 @@ export const cartApi = {
     update: (itemId, quantity) => api.put(`/cart/items/${itemId}`, null, { params: { quantity } }),
     remove: (itemId) => api.delete(`/cart/items/${itemId}`),
     clear: () => api.delete('/cart/clear'),
+    batch: (operations) => api.post('/cart/batch', { operations }),
 };
 
 // Orders API
 export const ordersApi = {
-    create: (data) => api.post('/orders', data),
+    // Retries must reuse the key so the server can answer them with the first order
+    create: (data, idempotencyKey) => api.post('/orders', data, {
+        headers: idempotencyKey ? { 'Idempotency-Key': idempotencyKey } : {}
+    }),
     getByNumber: (orderNumber) => api.get(`/orders/${orderNumber}`),
 };
 
@@ -1,6 +1,53 @@
 import { create } from 'zustand';
 import { cartApi } from '../services/api';
 
+// Quantity changes show up at once and are sent together after a short pause
+const BATCH_DELAY_MS = 300;
+let pendingOps = [];
+let batchTimer = null;
+// Batches go out one after another, so the server applies them in the order they were made
+let inFlight = Promise.resolve();
+
+const withQuantity = (cart, itemId, quantity) => {
+    const items = quantity > 0
+        ? cart.items.map((item) => item.id === itemId
+            ? { ...item, quantity, subtotal: (item.discountPrice ?? item.price) * quantity }
+            : item)
+        : cart.items.filter((item) => item.id !== itemId);
+    return {
+        ...cart,
+        items,
+        subtotal: items.reduce((sum, item) => sum + item.subtotal, 0),
+        totalItems: items.reduce((sum, item) => sum + item.quantity, 0),
+    };
+};
+
+const sendPending = async (set) => {
+    const operations = pendingOps;
+    pendingOps = [];
+    if (operations.length === 0) {
+        return;
+    }
+    try {
+        const response = await cartApi.batch(operations);
+        // Changes made while this batch was out are still shown; their own batch brings the cart back
+        if (pendingOps.length === 0) {
+            set({ cart: response.data.data });
+        }
+    } catch (error) {
+        // Rejected as a whole; show the server's cart again
+        set({ error: error.response?.data?.message || error.message });
+        try {
+            const response = await cartApi.get();
+            if (pendingOps.length === 0) {
+                set({ cart: response.data.data });
+            }
+        } catch {
+            // Keep what is shown; the next read will correct it
+        }
+    }
+};
+
 const useCartStore = create((set, get) => ({
     cart: null,
     loading: false,
@@ -8,9 +55,11 @@ const useCartStore = create((set, get) => ({
 
     fetchCart: async () => {
         set({ loading: true, error: null });
+        // Queued changes go first, so the cart read back includes them
+        await get().flushPending();
         try {
             const response = await cartApi.get();
-            set({ cart: response.data.data, loading: false });
+            set(pendingOps.length === 0 ? { cart: response.data.data, loading: false } : { loading: false });
         } catch (error) {
             set({ error: error.message, loading: false });
         }
@@ -28,18 +77,31 @@ const useCartStore = create((set, get) => ({
         }
     },
 
-    updateQuantity: async (itemId, quantity) => {
-        set({ loading: true, error: null });
-        try {
-            const response = await cartApi.update(itemId, quantity);
-            set({ cart: response.data.data, loading: false });
-        } catch (error) {
-            set({ error: error.response?.data?.message || error.message, loading: false });
+    updateQuantity: (itemId, quantity) => {
+        const cart = get().cart;
+        if (cart) {
+            set({ cart: withQuantity(cart, itemId, quantity), error: null });
         }
+        // Only the last quantity for an item matters
+        pendingOps = pendingOps.filter((op) => op.productId !== itemId);
+        pendingOps.push({ type: 'UPDATE', productId: itemId, quantity });
+        clearTimeout(batchTimer);
+        batchTimer = setTimeout(() => get().flushPending(), BATCH_DELAY_MS);
+    },
+
+    // Resolves once everything queued so far has been sent
+    flushPending: () => {
+        clearTimeout(batchTimer);
+        batchTimer = null;
+        inFlight = inFlight.then(() => sendPending(set));
+        return inFlight;
     },
 
     removeItem: async (itemId) => {
+        pendingOps = pendingOps.filter((op) => op.productId !== itemId);
         set({ loading: true, error: null });
+        // A batch still out must not bring the item back after it is gone
+        await get().flushPending();
         try {
             const response = await cartApi.remove(itemId);
             set({ cart: response.data.data, loading: false });